@@ -0,0 +1,162 @@
+package domain.storage;
+
+import domain.Budget;
+import domain.Movement;
+import domain.Tag;
+import domain.Transaction;
+import domain.TransactionType;
+import requests.RequestMode;
+import requests.classes.MovementRequest;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is a benchmark of the aggregation kernels (see {@code AggregationKernels}) against the plain loops<br>
+ * with branches they replaced, and of the lookup of the ranges of a {@code MovementRequest} over the columns<br>
+ * against testing its movements one by one. It belongs to the benchmark sources (bench), kept out of the application<br>
+ * ones (src) and compiled against them, and it is run as a program, giving optionally the number of movements<br>
+ * (by default 1000000) and of measured rounds (by default 20):<br>
+ *      java domain.storage.KernelBenchmark [movements] [rounds]<br>
+ * For each comparison it prints the average time of a round and the speedup, after checking that both ways<br>
+ * give the same result. The data is random (with a fixed seed), so that the filters match in no particular pattern.
+ */
+public final class KernelBenchmark {
+    private static final int WARMUP_ROUNDS = 10;
+
+    // Keeps the results of the rounds alive, so that the JIT compiler cannot drop them
+    private static volatile long sink;
+
+    private KernelBenchmark() {}
+
+    public static void main(String[] args) {
+        int movements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Budget budget = randomBudget(movements, new Random(42));
+        MovementColumns columns = budget.getMovementColumns();
+        int size = columns.size();
+        long[] amounts = new long[size];
+        int[] seconds = new int[size];
+        long[] dates = new long[size];
+        byte[] types = new byte[size];
+        for (int row = 0; row < size; row++) {
+            amounts[row] = columns.amount(row);
+            seconds[row] = columns.second(row);
+            dates[row] = columns.date(row);
+            types[row] = (byte) columns.type(row).ordinal();
+        }
+        byte debit = (byte) TransactionType.DEBIT.ordinal();
+        long cutDate = dates[size / 2];
+        int cutSecond = 12 * 60 * 60;
+        long minAmount = 10_00;
+        long maxAmount = 500_00;
+        int fromSecond = 8 * 60 * 60;
+        int toSecond = 18 * 60 * 60;
+        System.out.println(size + " movements, " + rounds + " rounds");
+
+        compare("balance up to a point in time",
+                () -> {
+                    long result = 0;
+                    for (int i = 0; i < size; i++) {
+                        if(dates[i] < cutDate || (dates[i] == cutDate && seconds[i] <= cutSecond)){
+                            result += types[i] == debit ? -amounts[i] : amounts[i];
+                        }
+                    }
+                    return result;
+                },
+                () -> columns.netAmountUpTo(cutDate, cutSecond), rounds);
+
+        compare("rows in a quantity and time range",
+                () -> {
+                    int[] rows = new int[size];
+                    int found = 0;
+                    for (int i = 0; i < size; i++) {
+                        if(amounts[i] >= minAmount && amounts[i] <= maxAmount
+                                && seconds[i] >= fromSecond && seconds[i] <= toSecond){
+                            rows[found++] = i;
+                        }
+                    }
+                    return Arrays.hashCode(Arrays.copyOf(rows, found));
+                },
+                () -> Arrays.hashCode(columns.select(minAmount, maxAmount, fromSecond, toSecond)), rounds);
+
+        MovementRequest request = new MovementRequest.MovementRequestBuilder()
+                .withQuantity(Money.ofMinorUnits(minAmount), Money.ofMinorUnits(maxAmount))
+                .withTime(Time.ofSecondOfDay(fromSecond), Time.ofSecondOfDay(toSecond))
+                .build();
+        List<Movement> rows = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            rows.add(columns.movement(row));
+        }
+        compare("movements matching a request of ranges",
+                () -> {
+                    BitSet matched = request.whichMatch(rows, RequestMode.AND);
+                    List<Movement> result = new ArrayList<>(matched.cardinality());
+                    for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                        result.add(rows.get(i));
+                    }
+                    return identities(result);
+                },
+                () -> identities(budget.getMovements(request, RequestMode.AND)), rounds);
+    }
+
+    // A digest of the movements given, in order, telling them apart by identity
+    private static long identities(List<Movement> movements) {
+        long result = movements.size();
+        for (Movement movement : movements) {
+            result = 31 * result + System.identityHashCode(movement);
+        }
+        return result;
+    }
+
+    private static void compare(String name, LongSupplier before, LongSupplier after, int rounds) {
+        long expected = before.getAsLong();
+        long actual = after.getAsLong();
+        if(expected != actual){
+            throw new IllegalStateException(name + ": the results differ (" + expected + ", " + actual + ")");
+        }
+
+        double beforeMillis = measure(before, rounds);
+        double afterMillis = measure(after, rounds);
+        System.out.printf("%-40s before %8.3f ms   after %8.3f ms   speedup %5.1fx%n",
+                name, beforeMillis, afterMillis, beforeMillis / afterMillis);
+    }
+
+    // The average time of a round, in milliseconds, after warming up the JIT compiler
+    private static double measure(LongSupplier round, int rounds) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += round.getAsLong();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += round.getAsLong();
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    private static Budget randomBudget(int movements, Random random) {
+        Budget budget = new Budget("Benchmark", "Random movements", 1000);
+        Tag tag = new Tag("benchmark", "Movements of the benchmark");
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction transaction = null;
+        for (int i = 0; i < movements; i++) {
+            if(i % 4 == 0){
+                TransactionType type = random.nextBoolean() ? TransactionType.CREDIT : TransactionType.DEBIT;
+                transaction = new Transaction("Transaction " + i, new Date(random.nextInt(3650) * 86_400_000L), type);
+                transactions.add(transaction);
+            }
+            transaction.addMovement(new Movement(Money.ofMinorUnits(1 + random.nextInt(1000_00)), "Movement " + i,
+                    Time.ofSecondOfDay(random.nextInt(Time.SECONDS_PER_DAY)), List.of(tag)));
+        }
+        budget.addTransactions(transactions);
+        return budget;
+    }
+}
@@ -1,49 +1,125 @@
 package domain;
 
+import domain.indexes.BalanceIndex;
+import domain.indexes.DescriptionIndex;
+import domain.indexes.RollupIndex;
+import domain.indexes.RollupPeriod;
+import domain.indexes.TagAggregate;
+import domain.indexes.TagAggregateIndex;
+import domain.indexes.TransactionIndex;
 import domain.iterators.BaseIterator;
+import domain.iterators.BaseSpliterator;
+import domain.iterators.Versioned;
+import domain.storage.ColumnarMovementStore;
+import domain.storage.MovementColumns;
+import domain.tags.TagDictionary;
+import domain.tags.TagSet;
+import requests.RequestMode;
+import requests.classes.MovementRequest;
+import requests.classes.TransactionRequest;
+import utilities.money.Money;
 import utilities.time.Time;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import utilities.time.TimeComparisonResult;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This ADT represents a budget, meaning an ordered series of transactions
  */
-public class Budget {
+public class Budget implements Versioned {
     private List<Transaction> transactions;
-    private double openingBalance;
+    private Money openingBalance;
     private String name;
     private String description;
+    private BalanceIndex balanceIndex;
+    private TransactionIndex transactionIndex;
+    // Built the first time it is read (see tagAggregates())
+    private TagAggregateIndex tagAggregates;
+    private final Object tagAggregatesLock = new Object();
+    private RollupIndex rollups;
+    private ColumnarMovementStore movementStore;
+    private DescriptionIndex<Transaction> transactionDescriptions;
+    private DescriptionIndex<Movement> movementDescriptions;
+    private int version;
+    private boolean transactionsShared;
+    private long nextSequence;
+    private Set<BudgetSnapshot> snapshots;
+    private List<BudgetListener> listeners;
+    private Timeline timeline;
 
     /**
      * Creates a new budget given its name, description and opening balance.<br>
-     * Raises {@code NullPointerException} if name or description are null.<br>
+     * Raises {@code NullPointerException} if name, description or openingBalance are null.<br>
      * Raises {@code IllegalArgumentException} if:<br>
      *      -name or description represents the empty string<br>
-     *      -openingBalance is zero or negative
+     *      -openingBalance is zero or negative, or it is more precise than a cent
      *
      * @param name The name of the new budget
      * @param description The description of the new budget
      * @param openingBalance The opening balance of the new budget
      */
-    public Budget(String name, String description, double openingBalance){
-        if(name == null || description == null){
-            throw new NullPointerException("Name or description are null");
+    public Budget(String name, String description, Money openingBalance){
+        if(name == null || description == null || openingBalance == null){
+            throw new NullPointerException("Name, description or opening balance are null");
         }
         if(name.equals("") || description.equals("")){
             throw new IllegalArgumentException("Name or description must be not empty");
         }
-        if(openingBalance <= 0){
+        if(openingBalance.signum() <= 0){
             throw new IllegalArgumentException("The opening balance must be positive");
         }
 
         this.name = name;
         this.description = description;
-        this.openingBalance = openingBalance;
+        try {
+            this.openingBalance = openingBalance.withScale(Money.DEFAULT_SCALE);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The opening balance must not be more precise than a cent", e);
+        }
         this.transactions = new ArrayList<>();
+        this.balanceIndex = new BalanceIndex();
+        this.transactionIndex = new TransactionIndex();
+        this.rollups = new RollupIndex(ZoneId.systemDefault());
+        this.movementStore = new ColumnarMovementStore();
+        this.snapshots = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Creates a new budget given its name, description and opening balance (rounded to the nearest cent).<br>
+     * Raises {@code NullPointerException} if name or description are null.<br>
+     * Raises {@code IllegalArgumentException} if:<br>
+     *      -name or description represents the empty string<br>
+     *      -openingBalance, rounded to the nearest cent, is zero or negative
+     *
+     * @param name The name of the new budget
+     * @param description The description of the new budget
+     * @param openingBalance The opening balance of the new budget
+     */
+    public Budget(String name, String description, double openingBalance){
+        this(name, description, Money.of(openingBalance));
     }
 
     /**
@@ -51,6 +127,14 @@ public class Budget {
      * @return The opening balance of this budget
      */
     public double getOpeningBalance() {
+        return openingBalance.toDouble();
+    }
+
+    /**
+     *
+     * @return The exact opening balance of this budget
+     */
+    public Money getOpeningAmount() {
         return openingBalance;
     }
 
@@ -72,14 +156,59 @@ public class Budget {
 
     /**
      *
-     * @return An immutable iterator over this budget' transactions
+     * @return An immutable iterator over this budget' transactions, failing if this budget is modified meanwhile
      */
     public Iterator<Transaction> iterator(){
-        return new BaseIterator<>(this.transactions);
+        return new BaseIterator<>(this.transactions, this);
+    }
+
+    /**
+     *
+     * @return  A spliterator over this budget' transactions, in order, failing if this budget is modified meanwhile<br>
+     *          (see {@code BaseSpliterator})
+     */
+    public Spliterator<Transaction> spliterator(){
+        return new BaseSpliterator<>(this.transactions, this);
     }
 
     /**
-     * Gives the transactions of this budget that are, or not, scheduled.
+     *
+     * @return  A sequential stream over this budget' transactions, in order, which can be turned parallel<br>
+     *          and fails if this budget is modified meanwhile
+     */
+    public Stream<Transaction> stream(){
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     *
+     * @return  A sequential stream over the movements of every transaction of this budget, in no particular order,<br>
+     *          which can be turned parallel (splitting evenly across all the movements)<br>
+     *          and fails if a movement is added or removed meanwhile
+     */
+    public Stream<Movement> movements(){
+        return StreamSupport.stream(new BaseSpliterator<>(movementStore.asList(), movementStore, false), false);
+    }
+
+    /**
+     *
+     * @return A read-only, column oriented, view over the movements of this budget' transactions
+     */
+    public MovementColumns getMovementColumns() {
+        return movementStore;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Gives the transactions of this budget that are, or not, scheduled (see {@code Transaction.isScheduled}),<br>
+     * ordered by date.<br>
+     * If the timeline of this budget is enabled, the scheduled transactions are the ones it holds<br>
+     * (see {@code Timeline}), found in O(log n + k); otherwise only the transactions whose date is not before now<br>
+     * are checked for being scheduled.
      *
      * @param future True - means that are wanted scheduled transactions<br>
      *               False - means that are wanted not scheduled ones
@@ -87,19 +216,26 @@ public class Budget {
      *          or null if none are found.
      */
     public List<Transaction> getTransactions(boolean future) {
-        List<Transaction> result = new ArrayList<>();
-        Iterator<Transaction> itTrans = iterator();
-        while (itTrans.hasNext()) {
-            Transaction transaction = itTrans.next();
-            if((transaction.isScheduled() && future) || (!transaction.isScheduled() && !future)){
-                result.add(transaction);
-            }
-        }
-        return result;
+        return scheduled(future, this::checkedView).toList();
+    }
+
+    /**
+     * Gives a page of the transactions of this budget that are, or not, scheduled, ordered by date<br>
+     * (see {@code getTransactions(boolean)}): only the transactions up to the end of the page are looked at.<br>
+     * Raises {@code IllegalArgumentException} if offset or limit are negative.
+     *
+     * @param future True - means that are wanted scheduled transactions<br>
+     *               False - means that are wanted not scheduled ones
+     * @param offset The number of matching transactions to skip
+     * @param limit The maximum number of transactions to give
+     * @return A new list with at most limit transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(boolean future, long offset, long limit) {
+        return scheduled(future, this::checkedView).skip(offset).limit(limit).toList();
     }
 
     /**
-     * Gives the transactions of this budget that are of the type requested.<br>
+     * Gives the transactions of this budget that are of the type requested, ordered by date.<br>
      * Raises {@code NullPointerException} if type is null.
      *
      * @param type The type of transactions to find
@@ -111,17 +247,358 @@ public class Budget {
             throw new NullPointerException("Type is null");
         }
 
-        List<Transaction> result = new ArrayList<>();
-        Iterator<Transaction> itTrans = iterator();
-        while(itTrans.hasNext()){
-            Transaction transaction = itTrans.next();
-            if(transaction.getTransactionType() == type){
-                result.add(transaction);
+        return transactionIndex.range(type, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Gives a page of the transactions of this budget that are of the type requested, ordered by date:<br>
+     * only the transactions up to the end of the page are looked at.<br>
+     * Raises {@code NullPointerException} if type is null.<br>
+     * Raises {@code IllegalArgumentException} if offset or limit are negative.
+     *
+     * @param type The type of transactions to find
+     * @param offset The number of matching transactions to skip
+     * @param limit The maximum number of transactions to give
+     * @return A new list with at most limit transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(TransactionType type, long offset, long limit) {
+        if(type == null){
+            throw new NullPointerException("Type is null");
+        }
+
+        return checkedView(() -> transactionIndex.iterator(type, Long.MIN_VALUE, Long.MAX_VALUE))
+                .skip(offset).limit(limit).toList();
+    }
+
+    /**
+     * Gives the transactions of this budget whose date is between the two given (both included), ordered by date.<br>
+     * Raises {@code NullPointerException} if from or to are null.
+     *
+     * @param from The starting date
+     * @param to The ending date
+     * @return A list of transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(Date from, Date to){
+        if(from == null || to == null){
+            throw new NullPointerException("The starting date or the ending one are null");
+        }
+
+        return transactionIndex.range(from.getTime(), to.getTime());
+    }
+
+    /**
+     * Gives the transactions of this budget of the type requested and whose date is between<br>
+     * the two given (both included), ordered by date.<br>
+     * Raises {@code NullPointerException} if type, from or to are null.
+     *
+     * @param type The type of transactions to find
+     * @param from The starting date
+     * @param to The ending date
+     * @return A list of transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(TransactionType type, Date from, Date to){
+        if(type == null || from == null || to == null){
+            throw new NullPointerException("Type, the starting date or the ending one are null");
+        }
+
+        return transactionIndex.range(type, from.getTime(), to.getTime());
+    }
+
+    /**
+     *
+     * @return A lazy view over the transactions of this budget, ordered by date (see {@code TransactionView})
+     */
+    public TransactionView viewTransactions() {
+        return view(() -> transactionIndex.iterator(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    /**
+     * Gives a lazy view over the transactions of this budget that are, or not, scheduled<br>
+     * (see {@code Transaction.isScheduled}), ordered by date (see {@code TransactionView}).<br>
+     * The current moment is read each time the view is iterated.<br>
+     * If the timeline of this budget is enabled, the scheduled transactions are the ones it holds (see {@code Timeline}).
+     *
+     * @param future True - means that are wanted scheduled transactions<br>
+     *               False - means that are wanted not scheduled ones
+     * @return A lazy view over the transactions matching the criteria selected
+     */
+    public TransactionView viewTransactions(boolean future) {
+        return scheduled(future, this::view);
+    }
+
+    /**
+     * Gives a lazy view over the transactions of this budget that are of the type requested, ordered by date<br>
+     * (see {@code TransactionView}).<br>
+     * Raises {@code NullPointerException} if type is null.
+     *
+     * @param type The type of transactions to find
+     * @return A lazy view over the transactions matching the criteria selected
+     */
+    public TransactionView viewTransactions(TransactionType type) {
+        if(type == null){
+            throw new NullPointerException("Type is null");
+        }
+
+        return view(() -> transactionIndex.iterator(type, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    /**
+     * Gives a lazy view over the transactions of this budget whose date is between the two given (both included),<br>
+     * ordered by date (see {@code TransactionView}).<br>
+     * Raises {@code NullPointerException} if from or to are null.
+     *
+     * @param from The starting date
+     * @param to The ending date
+     * @return A lazy view over the transactions matching the criteria selected
+     */
+    public TransactionView viewTransactions(Date from, Date to) {
+        if(from == null || to == null){
+            throw new NullPointerException("The starting date or the ending one are null");
+        }
+        long start = from.getTime();
+        long end = to.getTime();
+
+        return view(() -> transactionIndex.iterator(start, end));
+    }
+
+    /**
+     * Gives the transactions of this budget that match the request given, with the modality given, ordered by date.<br>
+     * In AND modality the type and the range of dates of the request, if set, are looked up<br>
+     * through the indexes of this budget, and so are its words if the description index is enabled:<br>
+     * only the transactions found through the most selective of them are tested.<br>
+     * Raises {@code NullPointerException} if request or mode are null.
+     *
+     * @param request The request to be matched
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return A list of transactions, in which everyone match the request
+     */
+    public List<Transaction> getTransactions(TransactionRequest request, RequestMode mode){
+        if(request == null || mode == null){
+            throw new NullPointerException("Request or mode are null");
+        }
+
+        List<Transaction> candidates = this.transactions;
+        boolean ordered = false;
+        if(mode == RequestMode.AND && (request.getTransactionType() != null || request.getRangeDates() != null)){
+            Date[] dates = request.getRangeDates();
+            long from = dates != null ? dates[0].getTime() : Long.MIN_VALUE;
+            long to = dates != null ? dates[1].getTime() : Long.MAX_VALUE;
+            candidates = request.getTransactionType() != null ?
+                    transactionIndex.range(request.getTransactionType(), from, to) :
+                    transactionIndex.range(from, to);
+            ordered = true;
+        }
+        if(mode == RequestMode.AND && request.getWordsDescription() != null && transactionDescriptions != null){
+            List<Transaction> byWords = transactionDescriptions.candidates(request.getWordsDescription());
+            if(byWords != null && byWords.size() < candidates.size()){
+                candidates = byWords;
+                ordered = false;
+            }
+        }
+
+        List<Transaction> result = select(candidates, request.whichMatch(candidates, mode));
+        if(!ordered){
+            result.sort(Comparator.comparing(Transaction::getDate));
+        }
+        return result;
+    }
+
+    /**
+     * Gives the movements, of this budget' transactions, that match the request given, with the modality given,<br>
+     * in no particular order.<br>
+     * In AND modality the words of the request, if set, are looked up through the description index,<br>
+     * if enabled, so only the movements found through it are tested.<br>
+     * Otherwise the ranges of quantity and time of the request, if set, are looked up scanning the columns<br>
+     * of the movements (see {@code getMovementColumns}), so only the other parameters are tested movement by movement,<br>
+     * and only on the movements found, in AND modality.<br>
+     * Raises {@code NullPointerException} if request or mode are null.
+     *
+     * @param request The request to be matched
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return A list of movements, in which everyone match the request
+     */
+    public List<Movement> getMovements(MovementRequest request, RequestMode mode){
+        if(request == null || mode == null){
+            throw new NullPointerException("Request or mode are null");
+        }
+
+        List<Movement> candidates = null;
+        if(mode == RequestMode.AND && request.getWordsDescription() != null && movementDescriptions != null){
+            candidates = movementDescriptions.candidates(request.getWordsDescription());
+        }
+
+        if(candidates == null){
+            return select(movementStore.asList(), matchingRows(request, mode));
+        }
+        return select(candidates, request.whichMatch(candidates, mode));
+    }
+
+    /*
+     * The rows of the movement columns matching the request. The ranges are selected scanning the columns:
+     * in AND modality they are one selection, whose rows alone are then tested for the other parameters;
+     * in OR modality each range is a selection of its own, added to the rows matching the other parameters.
+     */
+    private BitSet matchingRows(MovementRequest request, RequestMode mode) {
+        long[] quantity = request.getRangeQuantity();
+        int[] time = request.getRangeTime();
+        List<Movement> rows = movementStore.asList();
+        if(quantity == null && time == null){
+            return request.whichMatch(rows, mode);
+        }
+
+        MovementRequest others = request.withoutRanges();
+        if(mode == RequestMode.AND){
+            int[] selected = movementStore.select(
+                    quantity != null ? quantity[0] : 0, quantity != null ? quantity[1] : Long.MAX_VALUE,
+                    time != null ? time[0] : 0, time != null ? time[1] : Integer.MAX_VALUE);
+            BitSet result = new BitSet(rows.size());
+            if(others == null){
+                for (int row : selected) {
+                    result.set(row);
+                }
+                return result;
+            }
+            List<Movement> found = new ArrayList<>(selected.length);
+            for (int row : selected) {
+                found.add(rows.get(row));
+            }
+            BitSet matched = others.whichMatch(found, mode);
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                result.set(selected[i]);
+            }
+            return result;
+        }
+
+        BitSet result = others != null ? others.whichMatch(rows, mode) : new BitSet(rows.size());
+        if(quantity != null){
+            for (int row : movementStore.select(quantity[0], quantity[1], 0, Integer.MAX_VALUE)) {
+                result.set(row);
+            }
+        }
+        if(time != null){
+            for (int row : movementStore.select(0, Long.MAX_VALUE, time[0], time[1])) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    static <T> List<T> select(List<T> items, BitSet selected) {
+        List<T> result = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            result.add(items.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gives the aggregates (sum, number, smallest and largest quantity) of the movements carrying the tag given,<br>
+     * in this budget' transactions of the type given. They are found scanning the movements the first time<br>
+     * the aggregates of this budget are read, then kept up to date as this budget is modified, so reading them<br>
+     * afterwards costs O(1) (see {@code TagAggregateIndex}).<br>
+     * Raises {@code NullPointerException} if tag or type are null.
+     *
+     * @param tag The tag carried by the movements
+     * @param type The type of the transactions of the movements
+     * @return The aggregates of the movements, or null if no movement carries the tag in a transaction of the type
+     */
+    public TagAggregate getTagAggregate(Tag tag, TransactionType type) {
+        if(tag == null || type == null){
+            throw new NullPointerException("Tag or type are null");
+        }
+
+        // A tag that has never been seen is carried by no movement: looking it up must not intern it
+        int id = TagDictionary.getInstance().idOf(tag);
+        return id < 0 ? null : tagAggregates().get(id, type);
+    }
+
+    /**
+     * Gives the aggregates of the movements carrying each tag, in this budget' transactions of the type given<br>
+     * (see {@code getTagAggregate}), costing O(t) for t tags in use in this budget.<br>
+     * Raises {@code NullPointerException} if type is null.
+     *
+     * @param type The type of the transactions of the movements
+     * @return A new map from every tag carried by a movement of a transaction of the type, to its aggregates
+     */
+    public Map<Tag, TagAggregate> getTagAggregates(TransactionType type) {
+        if(type == null){
+            throw new NullPointerException("Type is null");
+        }
+
+        Map<Tag, TagAggregate> result = new HashMap<>();
+        TagAggregateIndex aggregates = tagAggregates();
+        for (int id : aggregates.ids()) {
+            TagAggregate aggregate = aggregates.get(id, type);
+            if(aggregate != null){
+                result.put(TagDictionary.getInstance().tagOf(id), aggregate);
             }
         }
         return result;
     }
 
+    /**
+     * Enables, if not already enabled, the index over the descriptions of this budget' transactions<br>
+     * and movements, used for looking up the words of the requests.<br>
+     * MODIFY:  Indexing every transaction and movement, and keeping the index up to date from now on.
+     */
+    public void enableDescriptionIndex() {
+        if(isDescriptionIndexEnabled()){
+            return;
+        }
+
+        transactionDescriptions = new DescriptionIndex<>();
+        movementDescriptions = new DescriptionIndex<>();
+        for (Transaction transaction : this.transactions) {
+            transactionDescriptions.add(transaction, transaction.getDescription());
+        }
+        for (int row = 0; row < movementStore.size(); row++) {
+            movementDescriptions.add(movementStore.movement(row), movementStore.movement(row).getDescription());
+        }
+    }
+
+    /**
+     *
+     * @return  True - if the index over the descriptions of this budget is enabled<br>
+     *          False - otherwise
+     */
+    public boolean isDescriptionIndexEnabled() {
+        return transactionDescriptions != null;
+    }
+
+    /**
+     * Enables the timeline of the scheduled transactions of this budget (see {@code Timeline}),<br>
+     * which from now on answers which transactions are scheduled, with its own definition<br>
+     * (see {@code Transaction.isScheduled}).<br>
+     * MODIFY:  Scheduling every transaction not yet executed, and keeping the timeline up to date from now on.<br>
+     * <br>
+     * Raises {@code NullPointerException} if clock is null.<br>
+     * Raises {@code IllegalStateException} if the timeline of this budget is already enabled.
+     *
+     * @param clock The clock telling the current moment to the timeline
+     * @return The timeline of this budget
+     */
+    public Timeline enableTimeline(Clock clock) {
+        if(clock == null){
+            throw new NullPointerException("Clock is null");
+        }
+        if(timeline != null){
+            throw new IllegalStateException("The timeline is already enabled");
+        }
+
+        Timeline enabled = new Timeline(this, clock, this.transactions);
+        listeners.add(enabled.getUpdater());
+        this.timeline = enabled;
+        return enabled;
+    }
+
+    /**
+     *
+     * @return The timeline of the scheduled transactions of this budget, or null if it is not enabled
+     */
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
     /**
      * Add a transaction to this budget automatically linking it.<br>
      * MODIFY:  If no exception is thrown:<br>
@@ -139,7 +616,106 @@ public class Budget {
         }
 
         transaction.setBudget(this);
-        this.transactions.add(transaction);
+        mutableTransactions().add(transaction);
+        transaction.setSequence(nextSequence++);
+        this.version++;
+        index(transaction);
+        for (BudgetListener listener : listeners) {
+            listener.transactionAdded(this, transaction);
+        }
+    }
+
+    /**
+     * Add many transactions to this budget at once, automatically linking them, as if added one by one in order.<br>
+     * The indexes of this budget are updated in bulk: in particular, if this budget has no movements yet,<br>
+     * its balance index is built at once from all the movements instead of growing one at a time.<br>
+     * MODIFY:  If no exception is thrown:<br>
+     *          -Adding the transactions to this budget<br>
+     *          -Replacing the transactions' link with this budget<br>
+     * <br>
+     * Raises {@code NullPointerException} if transactions is null or contains null.<br>
+     * Raises {@code IllegalStateException} if at least one of the transactions is part of a budget,<br>
+     *                                      or it is given more than once (no transaction is added).
+     *
+     * @param transactions The transactions to be added to this budget
+     */
+    public void addTransactions(Collection<Transaction> transactions) {
+        if(transactions == null){
+            throw new NullPointerException("Transactions are null");
+        }
+        int movements = 0;
+        for (Transaction transaction : transactions) {
+            if(transaction == null){
+                throw new NullPointerException("Transaction is null");
+            }
+            movements += transaction.size();
+        }
+        // Linking fails on a transaction part of a budget, including one given twice: the ones linked are unlinked
+        int linked = 0;
+        try {
+            for (Transaction transaction : transactions) {
+                transaction.setBudget(this);
+                linked++;
+            }
+        } catch (IllegalStateException e) {
+            for (Transaction transaction : transactions) {
+                if(linked-- == 0){
+                    break;
+                }
+                transaction.setBudget(null);
+            }
+            throw new IllegalStateException("The transactions must not be part of a budget, nor repeated", e);
+        }
+
+        long[] dates = new long[movements];
+        int[] seconds = new int[movements];
+        long[] amounts = new long[movements];
+        TagSet[] tagSets = tagAggregates != null ? new TagSet[movements] : null;
+        TransactionType[] types = tagAggregates != null ? new TransactionType[movements] : null;
+        long[] quantities = tagAggregates != null ? new long[movements] : null;
+        int count = 0;
+        List<Transaction> list = mutableTransactions();
+        movementStore.ensureCapacity(movementStore.size() + movements);
+        for (Transaction transaction : transactions) {
+            list.add(transaction);
+            transaction.setSequence(nextSequence++);
+            transactionIndex.add(transaction);
+            if(transactionDescriptions != null){
+                transactionDescriptions.add(transaction, transaction.getDescription());
+            }
+            long date = transaction.getDate().getTime();
+            long net = 0;
+            Iterator<Movement> itMoves = transaction.iterator();
+            while (itMoves.hasNext()) {
+                Movement movement = itMoves.next();
+                dates[count] = date;
+                seconds[count] = movement.getTime().toSecondOfDay();
+                amounts[count] = signedQuantity(transaction, movement);
+                net += amounts[count];
+                if(tagSets != null){
+                    tagSets[count] = movement.getTagSet();
+                    types[count] = transaction.getTransactionType();
+                    quantities[count] = movement.getAmount().getMinorUnits();
+                }
+                count++;
+                movementStore.add(transaction, movement);
+                if(movementDescriptions != null){
+                    movementDescriptions.add(movement, movement.getDescription());
+                }
+            }
+            // The movements of a transaction all take place at its date: one rollup update covers them
+            rollups.add(date, net);
+        }
+        balanceIndex.addAll(dates, seconds, amounts, count);
+        if(tagSets != null){
+            tagAggregates.addAll(tagSets, types, quantities, count);
+        }
+        this.version++;
+        for (Transaction transaction : transactions) {
+            for (BudgetListener listener : listeners) {
+                listener.transactionAdded(this, transaction);
+            }
+        }
     }
 
     /**
@@ -161,12 +737,152 @@ public class Budget {
             throw new IllegalStateException("Tranasaction must be part of this budget");
         }
 
+        preserve(transaction);
         transaction.setBudget(null);
-        this.transactions.remove(transaction);
+        mutableTransactions().remove(transaction);
+        this.version++;
+        unindex(transaction);
+        for (BudgetListener listener : listeners) {
+            listener.transactionRemoved(this, transaction);
+        }
+    }
+
+    /**
+     * Registers a listener to be notified of every modification made to this budget afterwards:<br>
+     * transactions added or removed and movements added to, or removed from, its transactions.<br>
+     * Raises {@code NullPointerException} if listener is null.
+     *
+     * @param listener The listener to be registered
+     */
+    public void addListener(BudgetListener listener) {
+        addListener(listener, false);
+    }
+
+    /**
+     * Registers a listener to be notified of every modification made to this budget afterwards, first notifying it,<br>
+     * if replay is true, of every transaction of this budget, in order, as if each one had just been added.<br>
+     * No modification can be made between the two steps, so that the listener sees the whole history of this budget<br>
+     * from the moment it is registered. If the listener raises an exception while replaying, it is not registered.<br>
+     * Raises {@code NullPointerException} if listener is null.
+     *
+     * @param listener The listener to be registered
+     * @param replay Whether the listener must first be notified of the transactions of this budget
+     */
+    public void addListener(BudgetListener listener, boolean replay) {
+        if(listener == null){
+            throw new NullPointerException("Listener is null");
+        }
+
+        long stamp = beginWrite();
+        try {
+            if(replay){
+                for (Transaction transaction : transactions) {
+                    listener.transactionAdded(this, transaction);
+                }
+            }
+            listeners.add(listener);
+        } finally {
+            endWrite(stamp);
+        }
+    }
+
+    /**
+     * Unregisters a listener, if registered.
+     *
+     * @param listener The listener to be unregistered
+     */
+    public void removeListener(BudgetListener listener) {
+        long stamp = beginWrite();
+        try {
+            listeners.remove(listener);
+        } finally {
+            endWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes a snapshot of this budget, in O(1): a read-only view of this budget as it is now,<br>
+     * unaffected by the modifications made to it afterwards (see {@code BudgetSnapshot}).<br>
+     * The snapshot must be closed when no longer needed, so that this budget stops preserving<br>
+     * the state it sees.
+     *
+     * @return A new snapshot of this budget
+     */
+    public BudgetSnapshot snapshot() {
+        transactionsShared = true;
+        BudgetSnapshot snapshot = new BudgetSnapshot(this, this.transactions, nextSequence, openingBalance, balanceIndex.copy(), version);
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Calculate the net flow (credits minus debits) of this budget between the two dates given, both included:<br>
+     * only the day of the dates matters, in the default time zone of the system. It costs O(log d),<br>
+     * d being the number of days spanned by this budget.<br>
+     * Raises {@code NullPointerException} if from or to are null.
+     *
+     * @param from The starting date
+     * @param to The ending date
+     * @return The net flow between the dates given, zero if from is after to
+     */
+    public Money getNetFlow(Date from, Date to) {
+        if(from == null || to == null){
+            throw new NullPointerException("The starting date or the ending one are null");
+        }
+
+        return Money.ofMinorUnits(rollups.sum(RollupPeriod.DAY, dayOf(from), dayOf(to)));
+    }
+
+    /**
+     * Gives the net flow (credits minus debits) of this budget in each period, of the length given, between<br>
+     * the ones holding the two dates given (both included), in the default time zone of the system.<br>
+     * Each period costs O(log p), p being the number of periods spanned by this budget.<br>
+     * Raises {@code NullPointerException} if period, from or to are null.
+     *
+     * @param period The length of the periods
+     * @param from A date of the first period
+     * @param to A date of the last period
+     * @return A new map from the start of each period to its net flow, empty if from is after to
+     */
+    public SortedMap<Date, Money> getRollups(RollupPeriod period, Date from, Date to) {
+        if(period == null || from == null || to == null){
+            throw new NullPointerException("Period, the starting date or the ending one are null");
+        }
+
+        SortedMap<Date, Money> result = new TreeMap<>();
+        LocalDate last = dayOf(to);
+        for (LocalDate start = RollupIndex.startOf(period, dayOf(from)); !start.isAfter(last); start = next(period, start)) {
+            long flow = rollups.sum(period, start, start);
+            result.put(Date.from(start.atStartOfDay(rollups.getZone()).toInstant()), Money.ofMinorUnits(flow));
+        }
+        return result;
+    }
+
+    /**
+     * Gives the balance of this budget at the end of each month of the year given, in the default time zone<br>
+     * of the system, costing O(log m) for each month, m being the number of months spanned by this budget.<br>
+     * Raises {@code IllegalArgumentException} if year is not a valid year.
+     *
+     * @param year The year
+     * @return A new list with the 12 balances, from January to December
+     */
+    public List<Money> getMonthEndBalances(int year) {
+        if(year < LocalDate.MIN.getYear() || year > LocalDate.MAX.getYear()){
+            throw new IllegalArgumentException("The year is not valid");
+        }
+
+        List<Money> result = new ArrayList<>(12);
+        for (int month = 1; month <= 12; month++) {
+            long flow = rollups.sumUpTo(RollupPeriod.MONTH, LocalDate.of(year, month, 1));
+            result.add(Money.ofMinorUnits(openingBalance.getMinorUnits() + flow));
+        }
+        return result;
     }
 
     /**
      * Calculate the amount of this budget at the date and time specified.<br>
+     * Every movement whose transaction's date is before the date given, or equal to it<br>
+     * with a time before or equal to the time given, is taken into account.<br>
      * Raises {@code NullPointerException} if date or time are null.
      *
      * @param date The date in which calculate the amount
@@ -174,26 +890,348 @@ public class Budget {
      * @return The amount of money in this budget at the date and time given
      */
     public double calculateAmount(Date date, Time time){
-        double result = getOpeningBalance();
-        Iterator<Transaction> itTrans = iterator();
-        while (itTrans.hasNext() ) {
-            Transaction trans = itTrans.next();
-            if (trans.getDate().before(date) || trans.getDate().equals(date)) {
-                Iterator<Movement> itMoves = trans.iterator();
-                while (itMoves.hasNext()) {
-                    Movement movement = itMoves.next();
-                    if (    movement.getTime().compare(time) == TimeComparisonResult.BEFORE ||
-                            movement.getTime().compare(time) == TimeComparisonResult.EQUALS) {
-
-                        switch (trans.getTransactionType()) {
-                            case CREDIT -> result += movement.getQuantity();
-                            case DEBIT -> result -= movement.getQuantity();
-                        }
+        return calculateBalance(date, time).toDouble();
+    }
+
+    /**
+     * Calculate the exact amount of this budget at the date and time specified.<br>
+     * Every movement whose transaction's date is before the date given, or equal to it<br>
+     * with a time before or equal to the time given, is taken into account.<br>
+     * Raises {@code NullPointerException} if date or time are null.
+     *
+     * @param date The date in which calculate the amount
+     * @param time The time at which calculate the amount
+     * @return The amount of money in this budget at the date and time given
+     */
+    public Money calculateBalance(Date date, Time time){
+        if(date == null || time == null){
+            throw new NullPointerException("Date or time are null");
+        }
+
+        return Money.ofMinorUnits(openingBalance.getMinorUnits() + balanceIndex.sumUpTo(date.getTime(), time.toSecondOfDay()));
+    }
 
+    /**
+     * Calculate the exact amount of this budget at each of the points in time given, which must be in<br>
+     * chronological order, in a single sweep over the movements of this budget (see {@code BalanceIndex.sumsUpTo}):<br>
+     * it costs O(p + n) for p points, instead of calling {@code calculateBalance} for each of them.<br>
+     * Raises {@code NullPointerException} if points is null or contains null.<br>
+     * Raises {@code IllegalArgumentException} if points are not in chronological order.
+     *
+     * @param points The points in time in which calculate the amount, in chronological order
+     * @return A new list with the amount of money at each point in time, in the same order
+     */
+    public List<Money> calculateBalances(List<TimePoint> points) {
+        if(points == null){
+            throw new NullPointerException("Points are null");
+        }
+
+        List<Money> result = new ArrayList<>(points.size());
+        calculateBalances(points, (point, balance) -> result.add(balance));
+        return result;
+    }
+
+    /**
+     * Calculate the exact amount of this budget at each of the points in time given, which must be in<br>
+     * chronological order, giving them to the consumer as soon as they are calculated instead of collecting them<br>
+     * (see {@code calculateBalances(List)}). The consumer is called with no lock held, so it can read this budget.<br>
+     * Raises {@code NullPointerException} if points or consumer are null, or points contains null.<br>
+     * Raises {@code IllegalArgumentException} if points are not in chronological order.
+     *
+     * @param points The points in time in which calculate the amount, in chronological order
+     * @param consumer The consumer of each point in time together with the amount of money at it, called in order
+     */
+    public void calculateBalances(List<TimePoint> points, BiConsumer<? super TimePoint, ? super Money> consumer) {
+        if(points == null || consumer == null){
+            throw new NullPointerException("Points or consumer are null");
+        }
+
+        sweep(balanceIndexCopy(), openingBalance, points, consumer);
+    }
+
+    /**
+     *
+     * @return A new list with the transactions of this budget, in order
+     */
+    List<Transaction> transactionsCopy() {
+        return new ArrayList<>(this.transactions);
+    }
+
+    /**
+     *
+     * @return A copy of the balance index of this budget, which is never modified in place (see {@code BalanceIndex.copy})
+     */
+    BalanceIndex balanceIndexCopy() {
+        return balanceIndex.copy();
+    }
+
+    /**
+     * Calculates the balances, over the balance index given, at each of the points in time given.
+     */
+    static void sweep(BalanceIndex balances, Money openingBalance, List<TimePoint> points,
+                      BiConsumer<? super TimePoint, ? super Money> consumer) {
+        int count = points.size();
+        long[] dates = new long[count];
+        int[] seconds = new int[count];
+        TimePoint previous = null;
+        for (int i = 0; i < count; i++) {
+            TimePoint point = points.get(i);
+            if(point == null){
+                throw new NullPointerException("Point is null");
+            }
+            if(previous != null && previous.compareTo(point) > 0){
+                throw new IllegalArgumentException("Points must be in chronological order");
+            }
+            dates[i] = point.getMillis();
+            seconds[i] = point.getTime().toSecondOfDay();
+            previous = point;
+        }
+
+        long opening = openingBalance.getMinorUnits();
+        int[] next = {0};
+        balances.sumsUpTo(dates, seconds, count, sum -> consumer.accept(points.get(next[0]++), Money.ofMinorUnits(opening + sum)));
+    }
+
+    /**
+     * Stops preserving, for the snapshot given, the state it sees.
+     *
+     * @param snapshot The snapshot, of this budget, being closed
+     */
+    void release(BudgetSnapshot snapshot) {
+        snapshots.remove(snapshot);
+    }
+
+    /**
+     * Called before a transaction of this budget is modified or removed,<br>
+     * so that every open snapshot keeps the transaction as it is now.
+     *
+     * @param transaction The transaction about to be modified or removed
+     */
+    void preserve(Transaction transaction) {
+        for (BudgetSnapshot snapshot : snapshots) {
+            snapshot.preserve(transaction);
+        }
+    }
+
+    /**
+     * Called by a transaction of this budget before modifying its movements, so that budgets<br>
+     * shared between threads can exclude their readers. This budget does nothing.
+     *
+     * @return A stamp to be given back to {@code endWrite}
+     */
+    long beginWrite() {
+        return 0;
+    }
+
+    /**
+     * Called by a transaction of this budget after modifying its movements.
+     *
+     * @param stamp The stamp given by {@code beginWrite}
+     */
+    void endWrite(long stamp) {
+    }
+
+    /**
+     * Keeps the indexes of this budget up to date after a movement has been added
+     * to one of its transactions.
+     *
+     * @param transaction The transaction, of this budget, to which the movement has been added
+     * @param movement The movement added
+     */
+    void movementAdded(Transaction transaction, Movement movement) {
+        // The rollups turn the date into a day first, so that a date they cannot take leaves every index untouched
+        rollups.add(transaction.getDate().getTime(), signedQuantity(transaction, movement));
+        balanceIndex.add(transaction.getDate().getTime(), movement.getTime().toSecondOfDay(), signedQuantity(transaction, movement));
+        movementStore.add(transaction, movement);
+        if(movementDescriptions != null){
+            movementDescriptions.add(movement, movement.getDescription());
+        }
+        if(tagAggregates != null && transaction.getTransactionType() != null){
+            tagAggregates.add(movement.getTagSet(), transaction.getTransactionType(), movement.getAmount().getMinorUnits());
+        }
+    }
+
+    /**
+     * Keeps the indexes of this budget up to date after a movement has been removed
+     * from one of its transactions.
+     *
+     * @param transaction The transaction, of this budget, from which the movement has been removed
+     * @param movement The movement removed
+     */
+    void movementRemoved(Transaction transaction, Movement movement) {
+        balanceIndex.remove(transaction.getDate().getTime(), movement.getTime().toSecondOfDay(), signedQuantity(transaction, movement));
+        rollups.remove(transaction.getDate().getTime(), signedQuantity(transaction, movement));
+        movementStore.remove(movement);
+        if(movementDescriptions != null){
+            movementDescriptions.remove(movement, movement.getDescription());
+        }
+        if(tagAggregates != null && transaction.getTransactionType() != null){
+            tagAggregates.remove(movement.getTagSet(), transaction.getTransactionType(), movement.getAmount().getMinorUnits());
+        }
+    }
+
+    /*
+     * The tag aggregates are built the first time they are read, grouping the movements of this budget in one pass,
+     * then kept up to date: a budget whose tag aggregates are never read, such as one just loaded, doesn't pay for them.
+     * The readers of a ConcurrentBudget run at once, so building is serialized; writers never run meanwhile.
+     */
+    private TagAggregateIndex tagAggregates() {
+        synchronized (tagAggregatesLock) {
+            if(tagAggregates == null){
+                int movements = 0;
+                for (Transaction transaction : transactions) {
+                    movements += transaction.size();
+                }
+                TagSet[] tagSets = new TagSet[movements];
+                TransactionType[] types = new TransactionType[movements];
+                long[] amounts = new long[movements];
+                int count = 0;
+                for (Transaction transaction : transactions) {
+                    Iterator<Movement> itMoves = transaction.iterator();
+                    while (itMoves.hasNext()) {
+                        Movement movement = itMoves.next();
+                        tagSets[count] = movement.getTagSet();
+                        types[count] = transaction.getTransactionType();
+                        amounts[count] = movement.getAmount().getMinorUnits();
+                        count++;
                     }
                 }
+                TagAggregateIndex index = new TagAggregateIndex();
+                index.addAll(tagSets, types, amounts, count);
+                tagAggregates = index;
             }
+            return tagAggregates;
         }
-        return result;
+    }
+
+    /*
+     * The clock is read every time the view is iterated, not when it is built, so that an iteration sees
+     * the transactions scheduled at that moment.
+     */
+    private TransactionView scheduled(boolean future, Function<Supplier<Iterator<Transaction>>, TransactionView> viewer) {
+        if(timeline != null){
+            Timeline current = timeline;
+            if(future){
+                return viewer.apply(() -> current.getScheduled(current.getClock().millis()).iterator())
+                        .sorted(Comparator.comparing(Transaction::getDate));
+            }
+            return viewer.apply(() -> {
+                long now = current.getClock().millis();
+                return new TransactionView(() -> transactionIndex.iterator(Long.MIN_VALUE, Long.MAX_VALUE))
+                        .filter(transaction -> !current.isScheduled(transaction, now))
+                        .iterator();
+            });
+        }
+
+        return viewer.apply(() -> {
+            long now = System.currentTimeMillis();
+            int secondOfDay = Time.now().toSecondOfDay();
+            // A transaction dated before now cannot be scheduled, so those are looked at only if wanted
+            return new TransactionView(() -> transactionIndex.iterator(future ? now : Long.MIN_VALUE, Long.MAX_VALUE))
+                    .filter(transaction -> transaction.isScheduled(now, secondOfDay) == future)
+                    .iterator();
+        });
+    }
+
+    /**
+     * Gives a view over the transactions given by the source, failing if this budget is modified while iterating.
+     *
+     * @param source The source of the transactions, giving a new iterator every time it is called
+     * @return A new view over the transactions of the source
+     */
+    TransactionView view(Supplier<Iterator<Transaction>> source) {
+        return checkedView(source);
+    }
+
+    private TransactionView checkedView(Supplier<Iterator<Transaction>> source) {
+        return new TransactionView(() -> {
+            Iterator<Transaction> transactions = source.get();
+            int expectedVersion = this.version;
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return transactions.hasNext();
+                }
+
+                @Override
+                public Transaction next() {
+                    if(version != expectedVersion){
+                        throw new ConcurrentModificationException("The budget has been modified while iterating");
+                    }
+                    return transactions.next();
+                }
+            };
+        });
+    }
+
+    /*
+     * The list of transactions may be shared with snapshots, in which case it is copied before being modified.
+     */
+    private List<Transaction> mutableTransactions() {
+        if(transactionsShared){
+            this.transactions = new ArrayList<>(this.transactions);
+            transactionsShared = false;
+        }
+        return this.transactions;
+    }
+
+    private void index(Transaction transaction) {
+        transactionIndex.add(transaction);
+        if(transactionDescriptions != null){
+            transactionDescriptions.add(transaction, transaction.getDescription());
+        }
+        Iterator<Movement> itMoves = transaction.iterator();
+        while (itMoves.hasNext()) {
+            movementAdded(transaction, itMoves.next());
+        }
+    }
+
+    private void unindex(Transaction transaction) {
+        transactionIndex.remove(transaction);
+        if(transactionDescriptions != null){
+            transactionDescriptions.remove(transaction, transaction.getDescription());
+        }
+        Iterator<Movement> itMoves = transaction.iterator();
+        while (itMoves.hasNext()) {
+            movementRemoved(transaction, itMoves.next());
+        }
+    }
+
+    /**
+     * Notifies the listeners of this budget that a movement has been added to one of its transactions.
+     */
+    void fireMovementAdded(Transaction transaction, Movement movement) {
+        for (BudgetListener listener : listeners) {
+            listener.movementAdded(this, transaction, movement);
+        }
+    }
+
+    /**
+     * Notifies the listeners of this budget that a movement has been removed from one of its transactions.
+     */
+    void fireMovementRemoved(Transaction transaction, Movement movement) {
+        for (BudgetListener listener : listeners) {
+            listener.movementRemoved(this, transaction, movement);
+        }
+    }
+
+    private LocalDate dayOf(Date date) {
+        return date.toInstant().atZone(rollups.getZone()).toLocalDate();
+    }
+
+    private static LocalDate next(RollupPeriod period, LocalDate start) {
+        switch (period) {
+            case WEEK:
+                return start.plusWeeks(1);
+            case MONTH:
+                return start.plusMonths(1);
+            default:
+                return start.plusDays(1);
+        }
+    }
+
+    private static long signedQuantity(Transaction transaction, Movement movement) {
+        long quantity = movement.getAmount().getMinorUnits();
+        return transaction.getTransactionType() == TransactionType.DEBIT ? -quantity : quantity;
     }
 }
@@ -0,0 +1,46 @@
+package domain;
+
+/**
+ * This abstraction represents an observer of the modifications made to a budget<br>
+ * (see {@code Budget.addListener}).<br>
+ * Each method is called after the modification has been made, by the thread that made it.<br>
+ * On a {@code ConcurrentBudget} it is called while that thread holds the write lock of the budget, so the listener<br>
+ * sees the budget as the modification left it, and can read and modify it from the same thread; it must not wait<br>
+ * for another thread reading or modifying the budget, which would wait for the listener in turn.
+ */
+public interface BudgetListener {
+
+    /**
+     * Called after a transaction, together with its movements, has been added to the budget.
+     *
+     * @param budget The budget modified
+     * @param transaction The transaction added
+     */
+    void transactionAdded(Budget budget, Transaction transaction);
+
+    /**
+     * Called after a transaction has been removed from the budget.
+     *
+     * @param budget The budget modified
+     * @param transaction The transaction removed
+     */
+    void transactionRemoved(Budget budget, Transaction transaction);
+
+    /**
+     * Called after a movement has been added to a transaction of the budget.
+     *
+     * @param budget The budget modified
+     * @param transaction The transaction, of the budget, to which the movement has been added
+     * @param movement The movement added
+     */
+    void movementAdded(Budget budget, Transaction transaction, Movement movement);
+
+    /**
+     * Called after a movement has been removed from a transaction of the budget.
+     *
+     * @param budget The budget modified
+     * @param transaction The transaction, of the budget, from which the movement has been removed
+     * @param movement The movement removed
+     */
+    void movementRemoved(Budget budget, Transaction transaction, Movement movement);
+}
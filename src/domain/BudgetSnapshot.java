@@ -0,0 +1,401 @@
+package domain;
+
+import domain.indexes.BalanceIndex;
+import requests.RequestMode;
+import requests.classes.MovementRequest;
+import requests.classes.TransactionRequest;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * This ADT represents a read-only view of a budget as it was when the snapshot has been taken<br>
+ * (see {@code Budget.snapshot}), unaffected by the modifications made to the budget afterwards.<br>
+ * <br>
+ * Taking a snapshot costs O(1), since it shares what the budget will never modify in place:<br>
+ *      -The list of transactions, which the budget copies before its next modification<br>
+ *      -The balance index, whose nodes are never modified once created<br>
+ * A transaction of the snapshot that is modified, or removed, afterwards is copied by the budget<br>
+ * just before, so that the snapshot keeps seeing it as it was: such a copy is linked to no budget<br>
+ * and must not be modified. Every other transaction is given as it is.<br>
+ * <br>
+ * A snapshot pins in memory the state it sees until it is closed; afterwards it cannot be used anymore.<br>
+ * It can be read from a thread other than the one modifying a {@code ConcurrentBudget}: a read that<br>
+ * overlaps the copy of one of its transactions is simply run again.
+ */
+public class BudgetSnapshot implements AutoCloseable {
+    private final Budget budget;
+    private final long sequence;
+    private final Money openingBalance;
+    private final int version;
+    private final Map<Transaction, Transaction> preserved;
+    private volatile List<Transaction> transactions;
+    private volatile BalanceIndex balanceIndex;
+    private volatile int preservedCount;
+    private volatile boolean closed;
+
+    BudgetSnapshot(Budget budget, List<Transaction> transactions, long sequence, Money openingBalance,
+                   BalanceIndex balanceIndex, int version) {
+        this.budget = budget;
+        this.transactions = transactions;
+        this.sequence = sequence;
+        this.openingBalance = openingBalance;
+        this.balanceIndex = balanceIndex;
+        this.version = version;
+        this.preserved = Collections.synchronizedMap(new IdentityHashMap<>());
+    }
+
+    /**
+     *
+     * @return The budget this snapshot has been taken from
+     */
+    public Budget getBudget() {
+        return budget;
+    }
+
+    /**
+     *
+     * @return The version the budget had when this snapshot has been taken
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     *
+     * @return The opening balance of the budget
+     */
+    public Money getOpeningAmount() {
+        return openingBalance;
+    }
+
+    /**
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @return The number of transactions in this snapshot
+     */
+    public int size() {
+        List<Transaction> current = transactions;
+        checkOpen();
+        return current.size();
+    }
+
+    /**
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @return An immutable iterator over the transactions of this snapshot, in the order they have been added
+     */
+    public Iterator<Transaction> iterator() {
+        return read(Collections::unmodifiableList).iterator();
+    }
+
+    /**
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @return  A sequential stream over the transactions of this snapshot, in the order they have been added,<br>
+     *          which can be turned parallel
+     */
+    public Stream<Transaction> stream() {
+        return read(Collections::unmodifiableList).stream();
+    }
+
+    /**
+     * Gives the movements that the transaction given had when this snapshot has been taken.<br>
+     * Raises {@code NullPointerException} if transaction is null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param transaction A transaction of this snapshot
+     * @return A new list with the movements of the transaction, in order
+     */
+    public List<Movement> getMovements(Transaction transaction) {
+        if(transaction == null){
+            throw new NullPointerException("Transaction is null");
+        }
+
+        return read(views -> {
+            List<Movement> result = new ArrayList<>();
+            view(transaction).iterator().forEachRemaining(result::add);
+            return result;
+        });
+    }
+
+    /**
+     * Gives the transactions of this snapshot that are, or not, scheduled now, ordered by date.<br>
+     * A transaction is scheduled as defined by {@code Transaction.isScheduled}, with the timeline of the budget<br>
+     * if it is enabled, so that the snapshot agrees with the budget.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param future True - means that are wanted scheduled transactions<br>
+     *               False - means that are wanted not scheduled ones
+     * @return A list of transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(boolean future) {
+        Timeline timeline = budget.getTimeline();
+        if(timeline != null){
+            long now = timeline.getClock().millis();
+            return filter(transaction -> timeline.isPending(transaction, now) == future);
+        }
+        long now = System.currentTimeMillis();
+        int secondOfDay = Time.now().toSecondOfDay();
+        return filter(transaction -> transaction.isScheduled(now, secondOfDay) == future);
+    }
+
+    /**
+     * Gives the transactions of this snapshot that are of the type requested, ordered by date.<br>
+     * Raises {@code NullPointerException} if type is null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param type The type of transactions to find
+     * @return A list of transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(TransactionType type) {
+        if(type == null){
+            throw new NullPointerException("Type is null");
+        }
+
+        return filter(transaction -> transaction.getTransactionType() == type);
+    }
+
+    /**
+     * Gives the transactions of this snapshot whose date is between the two given (both included), ordered by date.<br>
+     * Raises {@code NullPointerException} if from or to are null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param from The starting date
+     * @param to The ending date
+     * @return A list of transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(Date from, Date to) {
+        if(from == null || to == null){
+            throw new NullPointerException("The starting date or the ending one are null");
+        }
+
+        return filter(transaction -> isBetween(transaction, from, to));
+    }
+
+    /**
+     * Gives the transactions of this snapshot of the type requested and whose date is between<br>
+     * the two given (both included), ordered by date.<br>
+     * Raises {@code NullPointerException} if type, from or to are null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param type The type of transactions to find
+     * @param from The starting date
+     * @param to The ending date
+     * @return A list of transactions, in which everyone match the criteria selected
+     */
+    public List<Transaction> getTransactions(TransactionType type, Date from, Date to) {
+        if(type == null || from == null || to == null){
+            throw new NullPointerException("Type, the starting date or the ending one are null");
+        }
+
+        return filter(transaction -> transaction.getTransactionType() == type && isBetween(transaction, from, to));
+    }
+
+    /**
+     * Gives the transactions of this snapshot that match the request given, with the modality given, ordered by date.<br>
+     * Raises {@code NullPointerException} if request or mode are null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param request The request to be matched
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return A list of transactions, in which everyone match the request
+     */
+    public List<Transaction> getTransactions(TransactionRequest request, RequestMode mode) {
+        if(request == null || mode == null){
+            throw new NullPointerException("Request or mode are null");
+        }
+
+        return read(views -> {
+            List<Transaction> result = Budget.select(views, request.whichMatch(views, mode));
+            result.sort(Comparator.comparing(Transaction::getDate));
+            return result;
+        });
+    }
+
+    /**
+     * Gives the movements, of this snapshot' transactions, that match the request given, with the modality given,<br>
+     * in the order of their transactions.<br>
+     * Raises {@code NullPointerException} if request or mode are null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param request The request to be matched
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return A list of movements, in which everyone match the request
+     */
+    public List<Movement> getMovements(MovementRequest request, RequestMode mode) {
+        if(request == null || mode == null){
+            throw new NullPointerException("Request or mode are null");
+        }
+
+        return read(views -> {
+            List<Movement> movements = new ArrayList<>();
+            for (Transaction transaction : views) {
+                transaction.iterator().forEachRemaining(movements::add);
+            }
+            return Budget.select(movements, request.whichMatch(movements, mode));
+        });
+    }
+
+    /**
+     * Calculate the amount of the budget, as seen by this snapshot, at the date and time specified.<br>
+     * Raises {@code NullPointerException} if date or time are null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param date The date in which calculate the amount
+     * @param time The time at which calculate the amount
+     * @return The amount of money at the date and time given
+     */
+    public double calculateAmount(Date date, Time time) {
+        return calculateBalance(date, time).toDouble();
+    }
+
+    /**
+     * Calculate the exact amount of the budget, as seen by this snapshot, at the date and time specified.<br>
+     * Raises {@code NullPointerException} if date or time are null.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param date The date in which calculate the amount
+     * @param time The time at which calculate the amount
+     * @return The amount of money at the date and time given
+     */
+    public Money calculateBalance(Date date, Time time) {
+        if(date == null || time == null){
+            throw new NullPointerException("Date or time are null");
+        }
+        BalanceIndex balances = balanceIndex;
+        checkOpen();
+
+        return Money.ofMinorUnits(openingBalance.getMinorUnits() + balances.sumUpTo(date.getTime(), time.toSecondOfDay()));
+    }
+
+    /**
+     * Calculate the exact amount of the budget, as seen by this snapshot, at each of the points in time given,<br>
+     * which must be in chronological order, in a single sweep (see {@code Budget.calculateBalances}).<br>
+     * Raises {@code NullPointerException} if points is null or contains null.<br>
+     * Raises {@code IllegalArgumentException} if points are not in chronological order.<br>
+     * Raises {@code IllegalStateException} if this snapshot is closed.
+     *
+     * @param points The points in time in which calculate the amount, in chronological order
+     * @return A new list with the amount of money at each point in time, in the same order
+     */
+    public List<Money> calculateBalances(List<TimePoint> points) {
+        if(points == null){
+            throw new NullPointerException("Points are null");
+        }
+        BalanceIndex balances = balanceIndex;
+        checkOpen();
+
+        List<Money> result = new ArrayList<>(points.size());
+        Budget.sweep(balances, openingBalance, points, (point, balance) -> result.add(balance));
+        return result;
+    }
+
+    /**
+     *
+     * @return  True - if this snapshot has been closed<br>
+     *          False - otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this snapshot, releasing the state it sees. Closing it again has no effect.
+     */
+    @Override
+    public void close() {
+        if(closed){
+            return;
+        }
+
+        closed = true;
+        budget.release(this);
+        transactions = null;
+        balanceIndex = null;
+        preserved.clear();
+    }
+
+    /**
+     * Keeps, if part of this snapshot and not already kept, a copy of the transaction given as it is now.
+     *
+     * @param transaction The transaction about to be modified or removed
+     */
+    void preserve(Transaction transaction) {
+        if(transaction.getSequence() < sequence && !preserved.containsKey(transaction)){
+            preserved.put(transaction, new Transaction(transaction));
+            preservedCount++;
+            // The modification that follows must not be seen by a reader before the new count
+            VarHandle.storeStoreFence();
+        }
+    }
+
+    private Transaction view(Transaction transaction) {
+        Transaction copy = preserved.get(transaction);
+        return copy != null ? copy : transaction;
+    }
+
+    private List<Transaction> filter(Predicate<Transaction> criteria) {
+        return read(views -> {
+            List<Transaction> result = new ArrayList<>();
+            for (Transaction transaction : views) {
+                if(criteria.test(transaction)){
+                    result.add(transaction);
+                }
+            }
+            result.sort(Comparator.comparing(Transaction::getDate));
+            return result;
+        });
+    }
+
+    /*
+     * Runs the reader over the transactions of this snapshot as they were. If a transaction has been
+     * preserved meanwhile the reader may have seen it while being modified, so it is run again.
+     * As StampedLock.validate does, a fence keeps the plain reads of the reader before the second read of the count.
+     */
+    private <T> T read(Function<List<Transaction>, T> reader) {
+        while (true) {
+            List<Transaction> current = transactions;
+            checkOpen();
+            int before = preservedCount;
+            List<Transaction> views = new ArrayList<>(current.size());
+            for (Transaction transaction : current) {
+                views.add(view(transaction));
+            }
+            try {
+                T result = reader.apply(views);
+                VarHandle.acquireFence();
+                if(preservedCount == before){
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                VarHandle.acquireFence();
+                if(preservedCount == before){
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isBetween(Transaction transaction, Date from, Date to) {
+        return !transaction.getDate().before(from) && !transaction.getDate().after(to);
+    }
+
+    private void checkOpen() {
+        if(closed){
+            throw new IllegalStateException("The snapshot is closed");
+        }
+    }
+}
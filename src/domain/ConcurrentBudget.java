@@ -0,0 +1,412 @@
+package domain;
+
+import domain.indexes.BalanceIndex;
+import domain.indexes.RollupPeriod;
+import domain.indexes.TagAggregate;
+import requests.RequestMode;
+import requests.classes.MovementRequest;
+import requests.classes.TransactionRequest;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This ADT represents a budget that can be shared between threads, some modifying it<br>
+ * (adding or removing transactions, or movements of its transactions) and others reading it.<br>
+ * <br>
+ * All the indexes of a budget are shared by its transactions, therefore every modification<br>
+ * takes the write lock of the budget, for the few O(log n) updates it needs.<br>
+ * Readers never block each other:<br>
+ *      -Balances are read optimistically, without locking: the balance index is made of nodes<br>
+ *       never modified once created, so a reader walks a consistent version of it anyway and<br>
+ *       only retries, under the read lock, if a writer has run meanwhile<br>
+ *      -Lookups walk indexes modified in place, therefore they take the shared read lock,<br>
+ *       letting first any writer waiting, so that writers are not starved by a steady flow of readers<br>
+ *      -Iterators and streams run over a copy taken under the read lock, so they never fail<br>
+ *       because of a concurrent modification; so do the iterations of the views given by {@code viewTransactions},<br>
+ *       over a copy of the transactions the index selects, before filtering and limiting them<br>
+ * Unlike what lock-free reads would give, this is still a single lock for the whole budget: every modification<br>
+ * takes its write lock and every lookup, except {@code calculateBalance} and {@code getVersion}, its read lock.<br>
+ * So while a writer runs, for instance an import adding batches of transactions, lookups wait for each batch.<br>
+ * A reader that must not wait can take a snapshot (see {@code snapshot}), in O(1), and read it without<br>
+ * locking this budget.<br>
+ * <br>
+ * Listeners (see {@code Budget.addListener}) are called while the write lock is held, by the thread<br>
+ * modifying this budget, so that they see it as the modification left it: they can read and modify<br>
+ * this budget themselves, but other threads reading it wait for them to return.<br>
+ * Listeners are registered and unregistered under the write lock as well.<br>
+ * <br>
+ * The transactions and movements given are the live objects of this budget: reading them<br>
+ * while another thread modifies them is not guarded. The column oriented view given by<br>
+ * {@code getMovementColumns} is not guarded either.
+ */
+public class ConcurrentBudget extends Budget {
+    private final StampedLock lock;
+    private final AtomicInteger waitingWriters;
+    private final Object writerGate;
+    // The thread holding the write lock; only ever equal to the current thread if the current thread set it
+    private Thread writer;
+
+    /**
+     * Creates a new concurrent budget given its name, description and opening balance.<br>
+     * Raises {@code NullPointerException} if name, description or openingBalance are null.<br>
+     * Raises {@code IllegalArgumentException} if:<br>
+     *      -name or description represents the empty string<br>
+     *      -openingBalance is zero or negative, or it is more precise than a cent
+     *
+     * @param name The name of the new budget
+     * @param description The description of the new budget
+     * @param openingBalance The opening balance of the new budget
+     */
+    public ConcurrentBudget(String name, String description, Money openingBalance) {
+        super(name, description, openingBalance);
+        this.lock = new StampedLock();
+        this.waitingWriters = new AtomicInteger();
+        this.writerGate = new Object();
+    }
+
+    /**
+     * Creates a new concurrent budget given its name, description and opening balance (rounded to the nearest cent).<br>
+     * Raises {@code NullPointerException} if name or description are null.<br>
+     * Raises {@code IllegalArgumentException} if:<br>
+     *      -name or description represents the empty string<br>
+     *      -openingBalance, rounded to the nearest cent, is zero or negative
+     *
+     * @param name The name of the new budget
+     * @param description The description of the new budget
+     * @param openingBalance The opening balance of the new budget
+     */
+    public ConcurrentBudget(String name, String description, double openingBalance) {
+        this(name, description, Money.of(openingBalance));
+    }
+
+    /**
+     *
+     * @return An immutable iterator over a copy of this budget' transactions, taken when called
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        return copyTransactions().iterator();
+    }
+
+    /**
+     *
+     * @return A spliterator over a copy of this budget' transactions, in order, taken when called
+     */
+    @Override
+    public Spliterator<Transaction> spliterator() {
+        return copyTransactions().spliterator();
+    }
+
+    /**
+     *
+     * @return  A sequential stream over a copy of this budget' transactions, in order, taken when called,<br>
+     *          which can be turned parallel
+     */
+    @Override
+    public Stream<Transaction> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     *
+     * @return  A sequential stream over a copy of the movements of every transaction of this budget,<br>
+     *          in no particular order, taken when called, which can be turned parallel
+     */
+    @Override
+    public Stream<Movement> movements() {
+        List<Movement> copy = read(() -> super.movements().collect(Collectors.toList()));
+        return Collections.unmodifiableList(copy).stream();
+    }
+
+    @Override
+    public int getVersion() {
+        return readOptimistically(super::getVersion);
+    }
+
+    @Override
+    public List<Transaction> getTransactions(boolean future) {
+        return read(() -> super.getTransactions(future));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(boolean future, long offset, long limit) {
+        return read(() -> super.getTransactions(future, offset, limit));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(TransactionType type) {
+        return read(() -> super.getTransactions(type));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(TransactionType type, long offset, long limit) {
+        return read(() -> super.getTransactions(type, offset, limit));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(Date from, Date to) {
+        return read(() -> super.getTransactions(from, to));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(TransactionType type, Date from, Date to) {
+        return read(() -> super.getTransactions(type, from, to));
+    }
+
+    @Override
+    public List<Transaction> getTransactions(TransactionRequest request, RequestMode mode) {
+        return read(() -> super.getTransactions(request, mode));
+    }
+
+    @Override
+    public List<Movement> getMovements(MovementRequest request, RequestMode mode) {
+        return read(() -> super.getMovements(request, mode));
+    }
+
+    @Override
+    public TagAggregate getTagAggregate(Tag tag, TransactionType type) {
+        return read(() -> super.getTagAggregate(tag, type));
+    }
+
+    @Override
+    public Map<Tag, TagAggregate> getTagAggregates(TransactionType type) {
+        return read(() -> super.getTagAggregates(type));
+    }
+
+    @Override
+    public void enableDescriptionIndex() {
+        long stamp = writeLock();
+        try {
+            super.enableDescriptionIndex();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean isDescriptionIndexEnabled() {
+        return read(super::isDescriptionIndexEnabled);
+    }
+
+    @Override
+    public Timeline enableTimeline(Clock clock) {
+        long stamp = writeLock();
+        try {
+            return super.enableTimeline(clock);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Timeline getTimeline() {
+        return read(super::getTimeline);
+    }
+
+    @Override
+    public void addTransaction(Transaction transaction) {
+        long stamp = writeLock();
+        try {
+            super.addTransaction(transaction);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addTransactions(Collection<Transaction> transactions) {
+        long stamp = writeLock();
+        try {
+            super.addTransactions(transactions);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void removeTransaction(Transaction transaction) {
+        long stamp = writeLock();
+        try {
+            super.removeTransaction(transaction);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Money calculateBalance(Date date, Time time) {
+        if(date == null || time == null){
+            throw new NullPointerException("Date or time are null");
+        }
+
+        return readOptimistically(() -> super.calculateBalance(date, time));
+    }
+
+    @Override
+    public Money getNetFlow(Date from, Date to) {
+        return read(() -> super.getNetFlow(from, to));
+    }
+
+    @Override
+    public SortedMap<Date, Money> getRollups(RollupPeriod period, Date from, Date to) {
+        return read(() -> super.getRollups(period, from, to));
+    }
+
+    @Override
+    public List<Money> getMonthEndBalances(int year) {
+        return read(() -> super.getMonthEndBalances(year));
+    }
+
+    /*
+     * Reads the balance index without locking, as calculateBalance does: the sweep then runs over
+     * a copy of it, which is never modified, with no lock held.
+     */
+    @Override
+    BalanceIndex balanceIndexCopy() {
+        return readOptimistically(super::balanceIndexCopy);
+    }
+
+    /**
+     * Takes a snapshot of this budget, in O(1), under the write lock (see {@code Budget.snapshot}).<br>
+     * The snapshot can then be read without locking this budget.
+     *
+     * @return A new snapshot of this budget
+     */
+    @Override
+    public BudgetSnapshot snapshot() {
+        long stamp = writeLock();
+        try {
+            return super.snapshot();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    void release(BudgetSnapshot snapshot) {
+        long stamp = writeLock();
+        try {
+            super.release(snapshot);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    long beginWrite() {
+        return writeLock();
+    }
+
+    @Override
+    void endWrite(long stamp) {
+        unlockWrite(stamp);
+    }
+
+    @Override
+    TransactionView view(Supplier<Iterator<Transaction>> source) {
+        return new TransactionView(() -> {
+            List<Transaction> copy = read(() -> {
+                List<Transaction> transactions = new ArrayList<>();
+                source.get().forEachRemaining(transactions::add);
+                return transactions;
+            });
+            return Collections.unmodifiableList(copy).iterator();
+        });
+    }
+
+    private List<Transaction> copyTransactions() {
+        return Collections.unmodifiableList(read(this::transactionsCopy));
+    }
+
+    /*
+     * The write lock is reentrant for the thread holding it, so that the listeners, called while it is held,
+     * can read and modify this budget: a nested acquisition is given the stamp 0, never given by the lock.
+     */
+    private long writeLock() {
+        if(writer == Thread.currentThread()){
+            return 0;
+        }
+        waitingWriters.incrementAndGet();
+        long stamp;
+        try {
+            stamp = lock.writeLock();
+        } finally {
+            waitingWriters.decrementAndGet();
+            synchronized (writerGate) {
+                writerGate.notifyAll();
+            }
+        }
+        writer = Thread.currentThread();
+        return stamp;
+    }
+
+    private void unlockWrite(long stamp) {
+        if(stamp != 0){
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * A reader lets first any writer waiting, blocking until the writer holds the lock, so that writers are not
+     * starved by a steady flow of readers; the thread holding the write lock reads without locking.
+     */
+    private <T> T read(Supplier<T> reader) {
+        if(writer == Thread.currentThread()){
+            return reader.get();
+        }
+        if(waitingWriters.get() > 0){
+            boolean interrupted = false;
+            synchronized (writerGate) {
+                while (waitingWriters.get() > 0 && !lock.isWriteLocked()) {
+                    try {
+                        writerGate.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if(interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /*
+     * Only for readers that cannot fail on a state being modified: the result is discarded,
+     * and the reader run again under the read lock, if a writer has run meanwhile.
+     */
+    private <T> T readOptimistically(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0){
+            T result = reader.get();
+            if(lock.validate(stamp)){
+                return result;
+            }
+        }
+        return read(reader);
+    }
+}
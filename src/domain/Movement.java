@@ -1,7 +1,10 @@
 package domain;
 
+import domain.tags.TagDictionary;
+import domain.tags.TagSet;
 import requests.RequestedObjectType;
 import requests.applicable.Requestable;
+import utilities.money.Money;
 import utilities.time.Time;
 
 import java.util.ArrayList;
@@ -13,44 +16,67 @@ import java.util.Collection;
  * is REQUIRED to call setTransaction(...) method after a new movement is created before using it.<br>
  * A movement, abstractly, is represented by:<br>
  * <br>
- * -The quantity of money value (in euros)<br>
+ * -The quantity of money value (in euros, exact to the cent)<br>
  * -The description which specifies the meaning of the movement<br>
  * -The time (hour, minute, second) in which the movement has taken/will take place<br>
  */
 public class Movement implements Requestable {
-    private double quantity;
+    private Money quantity;
     private String description;
     private Transaction transaction;
     private Time time;
     private Collection<Tag> tags;
+    private TagSet tagSet;
 
     /**
      * Creates a new movement given the quantity of money value, the description, a time object (which day, month
-     * and year will be ignored) and a collection of tags.<br>
-     * Raises {@code NullPointerException} if description, time or tags are null.<br>
+     * and year will be ignored) and a collection (copied) of tags.<br>
+     * Raises {@code NullPointerException} if quantity, description, time or tags are null, or tags contains null.<br>
      * Raises {@code IllegalArgumentException} if: <br>
      *     -Description or tags represents, respectively, the empty string or the empty collection.<br>
-     *     -Quantity of money value is zero or negative
+     *     -Quantity of money value is zero or negative, or it is more precise than a cent
      *
      * @param quantity The quantity of money value given to the new movement
      * @param description The description given to the new movement
      * @param time The time given to the new movement
      * @param tags The set of tags associated to the new movement
      */
-    public Movement(double quantity, String description, Time time, Collection<Tag> tags){
-        if(description == null || time == null || tags == null){
-            throw new NullPointerException("Description, time or tags are null");
+    public Movement(Money quantity, String description, Time time, Collection<Tag> tags){
+        if(quantity == null || description == null || time == null || tags == null){
+            throw new NullPointerException("Quantity, description, time or tags are null");
         }
-        if(description.equals("") || quantity <= 0 || tags.size() <= 0){
+        if(description.equals("") || quantity.signum() <= 0 || tags.size() <= 0){
             throw new IllegalArgumentException("Description, tags must not be empty objects and quantity must be positive");
         }
 
-        this.quantity = quantity;
+        try {
+            this.quantity = quantity.withScale(Money.DEFAULT_SCALE);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Quantity must not be more precise than a cent", e);
+        }
         this.time = time;
-        this.tags = tags;
+        this.tags = new ArrayList<>(tags);
+        this.tagSet = TagDictionary.getInstance().setOf(this.tags);
         this.description = description;
     }
 
+    /**
+     * Creates a new movement given the quantity of money value (rounded to the nearest cent), the description,
+     * a time object (which day, month and year will be ignored) and a collection (copied) of tags.<br>
+     * Raises {@code NullPointerException} if description, time or tags are null, or tags contains null.<br>
+     * Raises {@code IllegalArgumentException} if: <br>
+     *     -Description or tags represents, respectively, the empty string or the empty collection.<br>
+     *     -Quantity of money value, rounded to the nearest cent, is zero or negative
+     *
+     * @param quantity The quantity of money value given to the new movement
+     * @param description The description given to the new movement
+     * @param time The time given to the new movement
+     * @param tags The set of tags associated to the new movement
+     */
+    public Movement(double quantity, String description, Time time, Collection<Tag> tags){
+        this(Money.of(quantity), description, time, tags);
+    }
+
     /**
      * Link this movement to the transaction given.<br>
      * Raises {@code IllegalStateException} if this movement is already linked to another transaction<br>
@@ -78,6 +104,14 @@ public class Movement implements Requestable {
      * @return The quantity of money value of this movement
      */
     public double getQuantity() {
+        return quantity.toDouble();
+    }
+
+    /**
+     *
+     * @return The exact quantity of money value of this movement, with the default scale
+     */
+    public Money getAmount() {
         return quantity;
     }
 
@@ -105,12 +139,20 @@ public class Movement implements Requestable {
         return new ArrayList<>(tags);
     }
 
+    /**
+     *
+     * @return The set of the ids (see {@code TagDictionary}) of the tags associated to this movement
+     */
+    public TagSet getTagSet() {
+        return tagSet;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Movement movement = (Movement) o;
-        return Double.compare(movement.getQuantity(), getQuantity()) == 0 &&
+        return getAmount().equals(movement.getAmount()) &&
                 getDescription().equals(movement.getDescription()) &&
                 getTransaction().equals(movement.getTransaction()) &&
                 getTime().equals(movement.getTime()) &&
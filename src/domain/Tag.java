@@ -49,4 +49,9 @@ public class Tag {
         return  getName().equals(tag.getName()) &&
                 getDescription().equals(tag.getDescription());
     }
+
+    @Override
+    public int hashCode() {
+        return 31 * getName().hashCode() + getDescription().hashCode();
+    }
 }
@@ -0,0 +1,82 @@
+package domain;
+
+import utilities.time.Time;
+
+import java.util.Date;
+
+/**
+ * This ADT represents a point in time of a budget, meaning a date and a time of the day,<br>
+ * as the ones the balance of a budget is calculated at (see {@code Budget.calculateBalances}).<br>
+ * Points in time are immutable and ordered chronologically: by date, then by time.
+ */
+public final class TimePoint implements Comparable<TimePoint> {
+    private final long date;
+    private final Time time;
+
+    /**
+     * Creates a new point in time given its date (copied) and time.<br>
+     * Raises {@code NullPointerException} if date or time are null.
+     *
+     * @param date The date of the new point in time
+     * @param time The time of the day of the new point in time
+     */
+    public TimePoint(Date date, Time time) {
+        if(date == null || time == null){
+            throw new NullPointerException("Date or time are null");
+        }
+
+        this.date = date.getTime();
+        this.time = time;
+    }
+
+    /**
+     *
+     * @return A new date equal to the one of this point in time
+     */
+    public Date getDate() {
+        return new Date(date);
+    }
+
+    /**
+     *
+     * @return The time of the day of this point in time
+     */
+    public Time getTime() {
+        return time;
+    }
+
+    /**
+     * Orders points in time chronologically.<br>
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other point in time to be compared with this
+     * @return A negative number, zero or a positive number if this point in time is before, equal or after the other
+     */
+    @Override
+    public int compareTo(TimePoint other) {
+        int cmp = Long.compare(date, other.date);
+        return cmp != 0 ? cmp : time.compareTo(other.time);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimePoint that = (TimePoint) o;
+        return date == that.date && time.equals(that.time);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(date) * 31 + time.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new Date(date) + " " + time;
+    }
+
+    long getMillis() {
+        return date;
+    }
+}
@@ -0,0 +1,265 @@
+package domain;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This ADT represents the timeline of the scheduled transactions of a budget (see {@code Budget.enableTimeline}).<br>
+ * A transaction is executed at its date, in the time zone of the clock of the timeline, and at the time of its<br>
+ * last movement: until then it is scheduled. The timeline keeps the transactions not yet executed ordered<br>
+ * by that moment, updating them as the budget is modified, so that:<br>
+ *      -Finding the transactions scheduled costs O(log n + k), k being their number, instead of checking<br>
+ *       every movement of the budget<br>
+ *      -Advancing the timeline executes, in order, the transactions whose moment the clock has passed,<br>
+ *       notifying its listeners<br>
+ * The clock is read only when needed, so a clock moved forward by hand (for instance in a simulation)<br>
+ * is honored as well. A transaction whose moment has passed is no longer scheduled even before<br>
+ * the timeline is advanced; advancing it only notifies the listeners and drops it from the timeline.<br>
+ * <br>
+ * A timeline can be used by many threads at once.
+ */
+public class Timeline {
+    private final Budget budget;
+    private final Clock clock;
+    private final NavigableSet<Entry> pending;
+    private final Map<Transaction, Entry> entries;
+    private final List<TimelineListener> listeners;
+    private final BudgetListener updater;
+    private long arrivals;
+
+    /**
+     * Creates the timeline of a budget, scheduling the transactions given not yet executed.
+     *
+     * @param budget The budget of the timeline
+     * @param clock The clock telling the current moment
+     * @param transactions The transactions of the budget
+     */
+    Timeline(Budget budget, Clock clock, Collection<Transaction> transactions) {
+        this.budget = budget;
+        this.clock = clock;
+        this.pending = new TreeSet<>(Comparator.comparingLong((Entry entry) -> entry.moment)
+                .thenComparingLong(entry -> entry.arrival));
+        this.entries = new IdentityHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.updater = new Updater();
+
+        long now = clock.millis();
+        for (Transaction transaction : transactions) {
+            schedule(transaction, now, false);
+        }
+    }
+
+    /**
+     *
+     * @return The budget of this timeline
+     */
+    public Budget getBudget() {
+        return budget;
+    }
+
+    /**
+     *
+     * @return The clock telling the current moment to this timeline
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Gives the transactions scheduled, in O(log n + k).
+     *
+     * @return A new list with the transactions scheduled, in the order they will be executed
+     */
+    public List<Transaction> getScheduled() {
+        return getScheduled(clock.millis());
+    }
+
+    /**
+     * Raises {@code NullPointerException} if transaction is null.
+     *
+     * @param transaction The transaction to be checked
+     * @return  True - if the transaction is part of the budget of this timeline and it is scheduled<br>
+     *          False - otherwise
+     */
+    public boolean isScheduled(Transaction transaction) {
+        if(transaction == null){
+            throw new NullPointerException("Transaction is null");
+        }
+
+        return isScheduled(transaction, clock.millis());
+    }
+
+    /**
+     * Gives the moment the next transaction scheduled will be executed at, for instance for setting a timer<br>
+     * that advances this timeline.
+     *
+     * @return The moment of the first transaction not yet executed, or null if there is none
+     */
+    public synchronized Instant nextExecution() {
+        return pending.isEmpty() ? null : Instant.ofEpochMilli(pending.first().moment);
+    }
+
+    /**
+     * Advances this timeline to the current moment of its clock.<br>
+     * MODIFY:  Executing, in order, the transactions whose moment the clock has passed, notifying the listeners<br>
+     *          of this timeline (after every transaction has been executed, by the calling thread).
+     *
+     * @return A new list with the transactions executed, in the order they have been executed
+     */
+    public List<Transaction> advance() {
+        List<Transaction> executed = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.millis();
+            while (!pending.isEmpty() && pending.first().moment <= now) {
+                Entry entry = pending.pollFirst();
+                entries.remove(entry.transaction);
+                executed.add(entry.transaction);
+            }
+        }
+        for (Transaction transaction : executed) {
+            for (TimelineListener listener : listeners) {
+                listener.transactionExecuted(budget, transaction);
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * Adds a listener, notified of the transactions executed when this timeline is advanced.<br>
+     * Raises {@code NullPointerException} if listener is null.
+     *
+     * @param listener The listener to be added
+     */
+    public void addListener(TimelineListener listener) {
+        if(listener == null){
+            throw new NullPointerException("Listener is null");
+        }
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener from this timeline, if present.
+     *
+     * @param listener The listener to be removed
+     */
+    public void removeListener(TimelineListener listener) {
+        listeners.remove(listener);
+    }
+
+    synchronized List<Transaction> getScheduled(long now) {
+        List<Transaction> result = new ArrayList<>();
+        for (Entry entry : pending.tailSet(new Entry(null, now, Long.MAX_VALUE), false)) {
+            result.add(entry.transaction);
+        }
+        return result;
+    }
+
+    synchronized boolean isScheduled(Transaction transaction, long now) {
+        Entry entry = entries.get(transaction);
+        return entry != null && entry.moment > now;
+    }
+
+    /*
+     * Applies the same definition to a transaction this timeline doesn't hold, like the copy kept by a snapshot.
+     */
+    boolean isPending(Transaction transaction, long now) {
+        return momentOf(transaction) > now;
+    }
+
+    /**
+     *
+     * @return The listener keeping this timeline up to date with the modifications of its budget
+     */
+    BudgetListener getUpdater() {
+        return updater;
+    }
+
+    /*
+     * A transaction already in the timeline stays there even if its moment has passed, so that advancing
+     * executes it; any other is added only if its moment is still to come.
+     */
+    private void schedule(Transaction transaction, long now, boolean kept) {
+        long moment = momentOf(transaction);
+        if(kept || moment > now){
+            Entry entry = new Entry(transaction, moment, arrivals++);
+            pending.add(entry);
+            entries.put(transaction, entry);
+        }
+    }
+
+    private boolean unschedule(Transaction transaction) {
+        Entry entry = entries.remove(transaction);
+        return entry != null && pending.remove(entry);
+    }
+
+    /*
+     * The date of the transaction, in the time zone of the clock, at the time of its last movement.
+     */
+    private long momentOf(Transaction transaction) {
+        ZoneId zone = clock.getZone();
+        int last = 0;
+        Iterator<Movement> movements = transaction.iterator();
+        while (movements.hasNext()) {
+            last = Math.max(last, movements.next().getTime().toSecondOfDay());
+        }
+        return Instant.ofEpochMilli(transaction.getDate().getTime()).atZone(zone).toLocalDate()
+                .atStartOfDay(zone).plusSeconds(last).toInstant().toEpochMilli();
+    }
+
+    private static final class Entry {
+        private final Transaction transaction;
+        private final long moment;
+        private final long arrival;
+
+        private Entry(Transaction transaction, long moment, long arrival) {
+            this.transaction = transaction;
+            this.moment = moment;
+            this.arrival = arrival;
+        }
+    }
+
+    private final class Updater implements BudgetListener {
+
+        @Override
+        public void transactionAdded(Budget budget, Transaction transaction) {
+            synchronized (Timeline.this) {
+                schedule(transaction, clock.millis(), false);
+            }
+        }
+
+        @Override
+        public void transactionRemoved(Budget budget, Transaction transaction) {
+            synchronized (Timeline.this) {
+                unschedule(transaction);
+            }
+        }
+
+        @Override
+        public void movementAdded(Budget budget, Transaction transaction, Movement movement) {
+            reschedule(transaction);
+        }
+
+        @Override
+        public void movementRemoved(Budget budget, Transaction transaction, Movement movement) {
+            reschedule(transaction);
+        }
+
+        private void reschedule(Transaction transaction) {
+            synchronized (Timeline.this) {
+                schedule(transaction, clock.millis(), unschedule(transaction));
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package domain;
+
+/**
+ * This abstraction represents an observer of the transactions executed on a timeline<br>
+ * (see {@code Timeline.addListener}).<br>
+ * It is called by the thread advancing the timeline, once for each transaction executed.
+ */
+public interface TimelineListener {
+
+    /**
+     * Called after a scheduled transaction has been executed, the clock having passed its last movement.
+     *
+     * @param budget The budget of the timeline
+     * @param transaction The transaction executed
+     */
+    void transactionExecuted(Budget budget, Transaction transaction);
+}
@@ -1,26 +1,34 @@
 package domain;
 
 import domain.iterators.BaseIterator;
+import domain.iterators.BaseSpliterator;
+import domain.iterators.Versioned;
+import domain.tags.TagDictionary;
+import domain.tags.TagSet;
 import requests.RequestedObjectType;
 import requests.applicable.Requestable;
 import utilities.time.Time;
-import utilities.time.TimeComparisonResult;
 
 import java.util.Date;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This ADT represents a transaction of a determined budget.<br>
  * A transaction represents a group of movements, which group is defined by the same date<br>
  * in which the movements occur, the same meaning given to their quantity of money value (a quantity of credit or debit)
  */
-public class Transaction implements Requestable {
+public class Transaction implements Requestable, Versioned {
     private String description;
     private TransactionType type;
     private Budget budget;
     private Date date;
     private Collection<Tag> tags;
+    private TagSet tagSet;
     private List<Movement> movements;
+    private int version;
+    private long sequence;
 
     /**
      * Creates a new transaction given the description, date and type.<br>
@@ -41,17 +49,65 @@ public class Transaction implements Requestable {
 
         this.movements = new ArrayList<>();
         this.tags = new ArrayList<>();
+        this.tagSet = TagSet.EMPTY;
         this.description = description;
         this.date = date;
         this.type = type;
     }
 
     /**
+     * Creates a new transaction, linked to no budget, with the same description, date, type,<br>
+     * tags and movements of the one given (the movements are not linked to the new one).
      *
-     * @return An immutable iterator over this transaction' movements
+     * @param original The transaction to copy
+     */
+    Transaction(Transaction original) {
+        this.movements = new ArrayList<>(original.movements);
+        this.tags = new ArrayList<>(original.tags);
+        this.tagSet = original.tagSet;
+        this.description = original.description;
+        this.date = original.date;
+        this.type = original.type;
+        this.version = original.version;
+    }
+
+    /**
+     *
+     * @return An immutable iterator over this transaction' movements, failing if this transaction is modified meanwhile
      */
     public Iterator<Movement> iterator() {
-        return new BaseIterator<>(this.movements);
+        return new BaseIterator<>(this.movements, this);
+    }
+
+    /**
+     *
+     * @return  A spliterator over this transaction' movements, in order, failing if this transaction is modified meanwhile<br>
+     *          (see {@code BaseSpliterator})
+     */
+    public Spliterator<Movement> spliterator() {
+        return new BaseSpliterator<>(this.movements, this);
+    }
+
+    /**
+     *
+     * @return  A sequential stream over this transaction' movements, in order, which can be turned parallel<br>
+     *          and fails if this transaction is modified meanwhile
+     */
+    public Stream<Movement> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     *
+     * @return The number of movements of this transaction
+     */
+    public int size() {
+        return movements.size();
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
     }
 
     /**
@@ -88,23 +144,51 @@ public class Transaction implements Requestable {
 
     /**
      *
-     * @return  True - if every movement in this transaction has a time greater than now<br>
-     *                 and the date of this transaction is greater than (or equal) now<br>
+     * @return The set of the ids (see {@code TagDictionary}) of the tags of this transaction
+     */
+    public TagSet getTagSet() {
+        return tagSet;
+    }
+
+    /**
+     * Checks whether this transaction is scheduled, meaning not yet executed:<br>
+     *      -If it is part of a budget whose timeline is enabled (see {@code Budget.enableTimeline}), as the timeline<br>
+     *       defines it: the clock of the timeline has not yet passed its date, at the time of its last movement<br>
+     *      -Otherwise, if its date is greater than (or equal) now and every movement in it has a time greater than now<br>
+     * The two definitions differ: for instance a transaction dated today, with movements at 9:00 and at 15:00,<br>
+     * is scheduled at 12:00 by the first one and not by the second one.
+     *
+     * @return  True - if this transaction is scheduled<br>
      *          False - otherwise
      */
     public boolean isScheduled(){
-        if(this.getDate().before(new Date())){
+        Budget owner = this.budget;
+        Timeline timeline = owner != null ? owner.getTimeline() : null;
+        if(timeline != null){
+            return timeline.isScheduled(this);
+        }
+        return isScheduled(System.currentTimeMillis(), Time.now().toSecondOfDay());
+    }
+
+    /**
+     * Checks whether this transaction is scheduled with respect to the moment given, read once by the caller,<br>
+     * without a timeline (see {@code isScheduled()}).
+     *
+     * @param now The moment to compare with (in milliseconds)
+     * @param secondOfDay The second of the day of the moment to compare with
+     * @return  True - if this transaction is scheduled with respect to the moment given<br>
+     *          False - otherwise
+     */
+    boolean isScheduled(long now, int secondOfDay){
+        if(this.getDate().getTime() < now){
             return false;
         }
-        boolean isScheduled = true;
-        Iterator<Movement> itMovs = iterator();
-        while(itMovs.hasNext() && isScheduled) {
-            Movement movement = itMovs.next();
-            if(movement.getTime().compare(Time.now()) != TimeComparisonResult.AFTER){
-                isScheduled = false;
+        for (Movement movement : this.movements) {
+            if(movement.getTime().toSecondOfDay() <= secondOfDay){
+                return false;
             }
         }
-        return isScheduled;
+        return true;
     }
 
     /**
@@ -115,6 +199,22 @@ public class Transaction implements Requestable {
         return budget;
     }
 
+    /**
+     *
+     * @return The position in which this transaction has been added to its budget, among all the ones added to it
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     *
+     * @param sequence The position in which this transaction has been added to its budget
+     */
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
     /**
      * Link this transaction to the budgrt given.<br>
      * Raises {@code IllegalStateException} if this transaction is already linked to another budget<br>
@@ -135,6 +235,8 @@ public class Transaction implements Requestable {
      *          -Adding the movement to this transaction<br>
      *          -Replacing movement's link with this transaction<br>
      *          -Adding, if not already there, movement' tags.<br>
+     *          -Updating the indexes of the budget this transaction is linked to, if any,<br>
+     *           and notifying its listeners<br>
      * <br>
      * Raises {@code NullPointerException} if movement is null.<br>
      * Raises {@code IllegalStateException} if movement is part of another transaction.
@@ -146,12 +248,33 @@ public class Transaction implements Requestable {
             throw new NullPointerException("The movement is null");
         }
 
-        movement.setTransaction(this);
-        this.movements.add(movement);
+        Budget owner = this.budget;
+        long stamp = owner != null ? owner.beginWrite() : 0;
+        try {
+            if(owner != null){
+                owner.preserve(this);
+            }
+            movement.setTransaction(this);
+            this.movements.add(movement);
+            this.version++;
+            if(owner != null){
+                owner.movementAdded(this, movement);
+            }
 
-        for (Tag tag : movement.getTags()) {
-            if (!this.tags.contains(tag)) {
-                this.tags.add(tag);
+            if (!movement.getTagSet().isSubsetOf(this.tagSet)) {
+                for (Tag tag : movement.getTags()) {
+                    if (!this.tags.contains(tag)) {
+                        this.tags.add(tag);
+                    }
+                }
+                this.tagSet = this.tagSet.union(movement.getTagSet());
+            }
+            if(owner != null){
+                owner.fireMovementAdded(this, movement);
+            }
+        } finally {
+            if(owner != null){
+                owner.endWrite(stamp);
             }
         }
     }
@@ -162,6 +285,8 @@ public class Transaction implements Requestable {
      *          -Removing the movement from this transaction<br>
      *          -Replacing movement's link with null<br>
      *          -Removing its movement' tags. (if it was the only using them)<br>
+     *          -Updating the indexes of the budget this transaction is linked to, if any,<br>
+     *           and notifying its listeners<br>
      * <br>
      * Raises {@code NullPointerException} if movement is null.<br>
      * Raises {@code IllegalStateException} if movement is not part of this transaction.
@@ -176,25 +301,46 @@ public class Transaction implements Requestable {
             throw new IllegalStateException("Movement must be part of this transaction");
         }
 
-        movement.setTransaction(null);
-        this.movements.remove(movement);
+        Budget owner = this.budget;
+        long stamp = owner != null ? owner.beginWrite() : 0;
+        try {
+            if(owner != null){
+                owner.preserve(this);
+            }
+            movement.setTransaction(null);
+            this.movements.removeIf(current -> current == movement);
+            this.version++;
+            if(owner != null){
+                owner.movementRemoved(this, movement);
+            }
 
-        Collection<Tag> stillUsed = new ArrayList<>();
+            Collection<Tag> stillUsed = new ArrayList<>();
 
-        for (Movement value : this.movements) {
-            Collection<Tag> currMovementTags = value.getTags();
+            for (Movement value : this.movements) {
+                Collection<Tag> currMovementTags = value.getTags();
 
-            for (Tag currTag : movement.getTags()) {
-                if (currMovementTags.contains(currTag) && !stillUsed.contains(currTag)) {
-                    stillUsed.add(currTag);
+                for (Tag currTag : movement.getTags()) {
+                    if (currMovementTags.contains(currTag) && !stillUsed.contains(currTag)) {
+                        stillUsed.add(currTag);
+                    }
                 }
             }
-        }
 
-        Collection<Tag> toRemove = new ArrayList<>(movement.getTags());
-        toRemove.removeAll(stillUsed);
+            Collection<Tag> toRemove = new ArrayList<>(movement.getTags());
+            toRemove.removeAll(stillUsed);
 
-        this.tags.removeAll(toRemove);
+            this.tags.removeAll(toRemove);
+            if (!toRemove.isEmpty()) {
+                this.tagSet = TagDictionary.getInstance().setOf(this.tags);
+            }
+            if(owner != null){
+                owner.fireMovementRemoved(this, movement);
+            }
+        } finally {
+            if(owner != null){
+                owner.endWrite(stamp);
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,314 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This ADT represents a lazy view over some transactions of a budget (see {@code Budget.viewTransactions}).<br>
+ * A view computes nothing until it is iterated, and then only as much as the iteration consumes:<br>
+ * the first page of a view over a large budget costs about that page, not the whole budget.<br>
+ * <br>
+ * Views are immutable and composable: filtering, skipping, limiting and sorting a view give a new view,<br>
+ * leaving the original one as it is. A view can be iterated many times, each time over the budget as it is<br>
+ * at that moment; an iteration fails raising {@code ConcurrentModificationException} if the budget is<br>
+ * modified meanwhile.<br>
+ * Sorting needs to see every transaction before giving the first, unless it is followed by a limit:<br>
+ * then only the transactions within the limit are kept, costing O(n log k) instead of O(n log n).
+ */
+public final class TransactionView implements Iterable<Transaction> {
+    private final Supplier<Iterator<Transaction>> source;
+    private final Stage[] stages;
+
+    TransactionView(Supplier<Iterator<Transaction>> source) {
+        this(source, new Stage[0]);
+    }
+
+    private TransactionView(Supplier<Iterator<Transaction>> source, Stage[] stages) {
+        this.source = source;
+        this.stages = stages;
+    }
+
+    /**
+     * Gives a view over the transactions of this view that match the criteria given.<br>
+     * Raises {@code NullPointerException} if criteria is null.
+     *
+     * @param criteria The criteria a transaction must match
+     * @return A new view, with only the transactions matching the criteria
+     */
+    public TransactionView filter(Predicate<? super Transaction> criteria) {
+        if(criteria == null){
+            throw new NullPointerException("Criteria is null");
+        }
+
+        return then(new Stage(criteria, 0, -1, null));
+    }
+
+    /**
+     * Gives a view over the transactions of this view but the first ones.<br>
+     * Raises {@code IllegalArgumentException} if offset is negative.
+     *
+     * @param offset The number of transactions to skip
+     * @return A new view, without the first offset transactions
+     */
+    public TransactionView skip(long offset) {
+        if(offset < 0){
+            throw new IllegalArgumentException("The offset must not be negative");
+        }
+
+        return then(new Stage(null, offset, -1, null));
+    }
+
+    /**
+     * Gives a view over the first transactions of this view.<br>
+     * Raises {@code IllegalArgumentException} if limit is negative.
+     *
+     * @param limit The maximum number of transactions to give
+     * @return A new view, with at most limit transactions
+     */
+    public TransactionView limit(long limit) {
+        if(limit < 0){
+            throw new IllegalArgumentException("The limit must not be negative");
+        }
+
+        return then(new Stage(null, 0, limit, null));
+    }
+
+    /**
+     * Gives a view over the transactions of this view sorted by the comparator given;<br>
+     * transactions that compare equal keep their order.<br>
+     * Raises {@code NullPointerException} if comparator is null.
+     *
+     * @param comparator The comparator ordering the transactions
+     * @return A new view, with the transactions sorted
+     */
+    public TransactionView sorted(Comparator<? super Transaction> comparator) {
+        if(comparator == null){
+            throw new NullPointerException("Comparator is null");
+        }
+
+        return then(new Stage(null, 0, -1, comparator));
+    }
+
+    /**
+     * Raises {@code ConcurrentModificationException}, while iterating, if the budget is modified meanwhile.
+     *
+     * @return An immutable iterator over the transactions of this view
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        Iterator<Transaction> result = source.get();
+        for (int i = 0; i < stages.length; i++) {
+            Stage stage = stages[i];
+            if(stage.comparator != null){
+                result = sort(result, stage.comparator, bound(i + 1));
+            } else if(stage.criteria != null){
+                result = filter(result, stage.criteria);
+            } else {
+                result = slice(result, stage.offset, stage.limit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return A sequential stream over the transactions of this view
+     */
+    public Stream<Transaction> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     *
+     * @return A new list with the transactions of this view, in order
+     */
+    public List<Transaction> toList() {
+        List<Transaction> result = new ArrayList<>();
+        iterator().forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     *
+     * @return The first transaction of this view or null if it has none
+     */
+    public Transaction first() {
+        Iterator<Transaction> transactions = iterator();
+        return transactions.hasNext() ? transactions.next() : null;
+    }
+
+    private TransactionView then(Stage stage) {
+        Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+        next[stages.length] = stage;
+        return new TransactionView(source, next);
+    }
+
+    /*
+     * How many sorted transactions the stages from the one given will consume at most, or -1 if all:
+     * only skipping and limiting can bound it.
+     */
+    private long bound(int from) {
+        long skipped = 0;
+        for (int i = from; i < stages.length && stages[i].criteria == null && stages[i].comparator == null; i++) {
+            if(stages[i].limit >= 0){
+                return skipped + stages[i].limit;
+            }
+            skipped += stages[i].offset;
+        }
+        return -1;
+    }
+
+    private static Iterator<Transaction> filter(Iterator<Transaction> upstream, Predicate<? super Transaction> criteria) {
+        return new Iterator<>() {
+            private Transaction next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && upstream.hasNext()) {
+                    Transaction candidate = upstream.next();
+                    if(criteria.test(candidate)){
+                        next = candidate;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException("The iteration has no more elements");
+                }
+                Transaction result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    private static Iterator<Transaction> slice(Iterator<Transaction> upstream, long offset, long limit) {
+        return new Iterator<>() {
+            private long skipped;
+            private long given;
+
+            @Override
+            public boolean hasNext() {
+                while (skipped < offset && upstream.hasNext()) {
+                    upstream.next();
+                    skipped++;
+                }
+                return (limit < 0 || given < limit) && upstream.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException("The iteration has no more elements");
+                }
+                given++;
+                return upstream.next();
+            }
+        };
+    }
+
+    /*
+     * Sorts the upstream transactions the first time they are needed. With a bound only the smallest
+     * transactions are kept, in a heap whose root is the largest of them; ties are broken by arrival,
+     * keeping the sort stable.
+     */
+    private static Iterator<Transaction> sort(Iterator<Transaction> upstream, Comparator<? super Transaction> comparator,
+                                              long bound) {
+        return new Iterator<>() {
+            private Iterator<Transaction> sorted;
+
+            @Override
+            public boolean hasNext() {
+                if(sorted == null){
+                    sorted = bound < 0 ? sortAll() : sortSmallest();
+                }
+                return sorted.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException("The iteration has no more elements");
+                }
+                return sorted.next();
+            }
+
+            private Iterator<Transaction> sortAll() {
+                List<Transaction> all = new ArrayList<>();
+                upstream.forEachRemaining(all::add);
+                all.sort(comparator);
+                return Collections.unmodifiableList(all).iterator();
+            }
+
+            private Iterator<Transaction> sortSmallest() {
+                if(bound == 0){
+                    return Collections.emptyIterator();
+                }
+                Comparator<Ranked> order = Comparator.<Ranked, Transaction>comparing(ranked -> ranked.transaction, comparator)
+                        .thenComparingLong(ranked -> ranked.arrival);
+                PriorityQueue<Ranked> smallest = new PriorityQueue<>(order.reversed());
+                long arrival = 0;
+                while (upstream.hasNext()) {
+                    Ranked candidate = new Ranked(upstream.next(), arrival++);
+                    if(smallest.size() < bound){
+                        smallest.add(candidate);
+                    } else if(order.compare(candidate, smallest.peek()) < 0){
+                        smallest.poll();
+                        smallest.add(candidate);
+                    }
+                }
+                Ranked[] result = smallest.toArray(new Ranked[0]);
+                Arrays.sort(result, order);
+                List<Transaction> transactions = new ArrayList<>(result.length);
+                for (Ranked ranked : result) {
+                    transactions.add(ranked.transaction);
+                }
+                return Collections.unmodifiableList(transactions).iterator();
+            }
+        };
+    }
+
+    /*
+     * A step of a view: either a filter, a slice (offset and limit, -1 meaning none) or a sort.
+     */
+    private static final class Stage {
+        private final Predicate<? super Transaction> criteria;
+        private final long offset;
+        private final long limit;
+        private final Comparator<? super Transaction> comparator;
+
+        private Stage(Predicate<? super Transaction> criteria, long offset, long limit,
+                      Comparator<? super Transaction> comparator) {
+            this.criteria = criteria;
+            this.offset = offset;
+            this.limit = limit;
+            this.comparator = comparator;
+        }
+    }
+
+    private static final class Ranked {
+        private final Transaction transaction;
+        private final long arrival;
+
+        private Ranked(Transaction transaction, long arrival) {
+            this.transaction = transaction;
+            this.arrival = arrival;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package domain.indexes;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * This ADT represents an index over the signed quantities of money value (in minor units) of a budget,<br>
+ * ordered by the point in time (date, second of the day) in which they take place.<br>
+ * It keeps, for each point in time, the cumulative sum of everything happened until there,<br>
+ * so that the balance at a given point in time is answered in O(log n).<br>
+ * <br>
+ * Internally it is a treap whose nodes are never modified once created: every update<br>
+ * copies only the path from the root to the changed node (O(log n) nodes).
+ */
+public class BalanceIndex {
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private Node root;
+
+    /**
+     * Creates a new empty balance index.
+     */
+    public BalanceIndex() {
+        this.root = null;
+    }
+
+    /**
+     * Gives a copy of this index in O(1): the two share their nodes, which are never modified,<br>
+     * and from then on each one is updated independently.
+     *
+     * @return A new index holding the same quantities of this
+     */
+    public BalanceIndex copy() {
+        BalanceIndex result = new BalanceIndex();
+        result.root = root;
+        return result;
+    }
+
+    /**
+     *
+     * @return The number of distinct points in time held by this index
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Adds a signed quantity of money value at the point in time given.
+     *
+     * @param date The date (in milliseconds) of the point in time
+     * @param second The second of the day of the point in time
+     * @param amount The signed quantity, in minor units, to add (positive for credits, negative for debits)
+     */
+    public void add(long date, int second, long amount) {
+        if (find(root, date, second) != null) {
+            root = update(root, date, second, amount, 1);
+        } else {
+            Node[] parts = split(root, date, second);
+            Node single = new Node(date, second, amount, 1, priority(date, second), null, null);
+            root = merge(merge(parts[0], single), parts[1]);
+        }
+    }
+
+    /**
+     * Adds many signed quantities of money value at once, given in no particular order.<br>
+     * If this index is empty it is built in O(n log n) for sorting the points in time plus O(n),<br>
+     * instead of inserting them one by one.<br>
+     * Raises {@code IllegalArgumentException} if the arrays have a length lesser than count.
+     *
+     * @param dates The dates (in milliseconds) of the points in time
+     * @param seconds The seconds of the day of the points in time
+     * @param amounts The signed quantities, in minor units, to add
+     * @param count The number of quantities to add, from the start of the arrays
+     */
+    public void addAll(long[] dates, int[] seconds, long[] amounts, int count) {
+        if (dates.length < count || seconds.length < count || amounts.length < count) {
+            throw new IllegalArgumentException("The arrays must hold count values");
+        }
+        if (root != null) {
+            for (int i = 0; i < count; i++) {
+                add(dates[i], seconds[i], amounts[i]);
+            }
+            return;
+        }
+
+        int[] order = sortedOrder(dates, seconds, count);
+        // Points in time added more than once are merged in a single node
+        long[] keyDates = new long[count];
+        int[] keySeconds = new int[count];
+        long[] keyAmounts = new long[count];
+        int[] keyCounts = new int[count];
+        int keys = 0;
+        for (int i : order) {
+            if (keys > 0 && keyDates[keys - 1] == dates[i] && keySeconds[keys - 1] == seconds[i]) {
+                keyAmounts[keys - 1] += amounts[i];
+                keyCounts[keys - 1]++;
+            } else {
+                keyDates[keys] = dates[i];
+                keySeconds[keys] = seconds[i];
+                keyAmounts[keys] = amounts[i];
+                keyCounts[keys] = 1;
+                keys++;
+            }
+        }
+
+        // The shape of a treap over sorted keys is its cartesian tree by priority, built with a stack
+        int[] priorities = new int[keys];
+        int[] lefts = new int[keys];
+        int[] rights = new int[keys];
+        int[] stack = new int[keys];
+        int top = -1;
+        for (int i = 0; i < keys; i++) {
+            priorities[i] = priority(keyDates[i], keySeconds[i]);
+            rights[i] = -1;
+            int last = -1;
+            while (top >= 0 && priorities[stack[top]] <= priorities[i]) {
+                last = stack[top--];
+            }
+            lefts[i] = last;
+            if (top >= 0) {
+                rights[stack[top]] = i;
+            }
+            stack[++top] = i;
+        }
+        root = top < 0 ? null : build(stack[0], keyDates, keySeconds, keyAmounts, keyCounts, priorities, lefts, rights);
+    }
+
+    private static Node build(int i, long[] dates, int[] seconds, long[] amounts, int[] counts,
+                              int[] priorities, int[] lefts, int[] rights) {
+        Node left = lefts[i] < 0 ? null : build(lefts[i], dates, seconds, amounts, counts, priorities, lefts, rights);
+        Node right = rights[i] < 0 ? null : build(rights[i], dates, seconds, amounts, counts, priorities, lefts, rights);
+        return new Node(dates[i], seconds[i], amounts[i], counts[i], priorities[i], left, right);
+    }
+
+    /*
+     * Gives the indexes of the first count points in time, ordered by point in time.
+     */
+    private static int[] sortedOrder(long[] dates, int[] seconds, int count) {
+        int[] order = new int[count];
+        boolean sorted = true;
+        long minDate = Long.MAX_VALUE;
+        long maxDate = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            sorted &= i == 0 || compare(dates[i - 1], seconds[i - 1], dates[i], seconds[i]) <= 0;
+            minDate = Math.min(minDate, dates[i]);
+            maxDate = Math.max(maxDate, dates[i]);
+        }
+        if (sorted) {
+            return order;
+        }
+
+        // Any span of dates of a few thousand years gives keys (date, second) fitting a long
+        if (maxDate - minDate >= 0 && maxDate - minDate < Long.MAX_VALUE / SECONDS_PER_DAY - 1) {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = (dates[i] - minDate) * SECONDS_PER_DAY + seconds[i];
+            }
+            return radixSort(keys, order);
+        }
+        return mergeSort(dates, seconds, order);
+    }
+
+    /*
+     * Stable LSD radix sort of the indexes by their keys (not negative), 16 bits at a time.
+     */
+    private static int[] radixSort(long[] keys, int[] order) {
+        int count = keys.length;
+        long[] keyBuffer = new long[count];
+        int[] orderBuffer = new int[count];
+        int[] counts = new int[1 << 16];
+        long max = 0;
+        for (long key : keys) {
+            max = Math.max(max, key);
+        }
+        for (int shift = 0; shift < 64 && (max >>> shift) != 0; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (long key : keys) {
+                counts[(int) (key >>> shift) & 0xFFFF]++;
+            }
+            int total = 0;
+            for (int digit = 0; digit < counts.length; digit++) {
+                int current = counts[digit];
+                counts[digit] = total;
+                total += current;
+            }
+            for (int i = 0; i < count; i++) {
+                int position = counts[(int) (keys[i] >>> shift) & 0xFFFF]++;
+                keyBuffer[position] = keys[i];
+                orderBuffer[position] = order[i];
+            }
+            long[] swapKeys = keys;
+            keys = keyBuffer;
+            keyBuffer = swapKeys;
+            int[] swapOrder = order;
+            order = orderBuffer;
+            orderBuffer = swapOrder;
+        }
+        return order;
+    }
+
+    /*
+     * Stable bottom-up merge sort of the indexes by point in time.
+     */
+    private static int[] mergeSort(long[] dates, int[] seconds, int[] order) {
+        int count = order.length;
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int from = 0; from < count; from += 2 * width) {
+                int middle = Math.min(from + width, count);
+                int to = Math.min(from + 2 * width, count);
+                int i = from;
+                int j = middle;
+                for (int k = from; k < to; k++) {
+                    if (j >= to || (i < middle && compare(dates[order[i]], seconds[order[i]], dates[order[j]], seconds[order[j]]) <= 0)) {
+                        buffer[k] = order[i++];
+                    } else {
+                        buffer[k] = order[j++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Removes a signed quantity of money value previously added at the point in time given.<br>
+     * Raises {@code IllegalStateException} if nothing has been added at that point in time.
+     *
+     * @param date The date (in milliseconds) of the point in time
+     * @param second The second of the day of the point in time
+     * @param amount The signed quantity to remove, the same given when it was added
+     */
+    public void remove(long date, int second, long amount) {
+        Node node = find(root, date, second);
+        if (node == null) {
+            throw new IllegalStateException("Nothing has been added at the point in time given");
+        }
+        if (node.count == 1) {
+            root = delete(root, date, second);
+        } else {
+            root = update(root, date, second, -amount, -1);
+        }
+    }
+
+    /**
+     * Calculates the sum of every quantity added at a point in time before or equal to the one given.
+     *
+     * @param date The date (in milliseconds) of the point in time
+     * @param second The second of the day of the point in time
+     * @return The sum of every quantity up to the point in time given (included)
+     */
+    public long sumUpTo(long date, int second) {
+        long result = 0;
+        Node current = root;
+        while (current != null) {
+            if (compare(current.date, current.second, date, second) <= 0) {
+                result += sum(current.left) + current.amount;
+                current = current.right;
+            } else {
+                current = current.left;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the sum of every quantity up to each of the points in time given, which must be in chronological<br>
+     * order, in a single sweep: the quantities are walked in order once, alongside the points, costing O(p + n)<br>
+     * for p points and n distinct points in time held. When the points are few, compared to the points in time<br>
+     * held, each one is looked up on its own instead, costing O(p log n).<br>
+     * Raises {@code NullPointerException} if dates, seconds or consumer are null.<br>
+     * Raises {@code IllegalArgumentException} if count is negative or larger than dates or seconds.
+     *
+     * @param dates The dates (in milliseconds) of the points in time, in chronological order
+     * @param seconds The seconds of the day of the points in time
+     * @param count The number of points in time
+     * @param consumer The consumer of the sums, called once for each point in time, in order
+     */
+    public void sumsUpTo(long[] dates, int[] seconds, int count, LongConsumer consumer) {
+        if (dates == null || seconds == null || consumer == null) {
+            throw new NullPointerException("Dates, seconds or consumer are null");
+        }
+        if (count < 0 || count > dates.length || count > seconds.length) {
+            throw new IllegalArgumentException("Count must be between 0 and the number of points in time");
+        }
+
+        Node current = root;
+        int held = size(current);
+        if ((long) count * (64 - Long.numberOfLeadingZeros(held)) < held) {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(sumUpTo(dates[i], seconds[i]));
+            }
+            return;
+        }
+
+        // In-order walk of the treap, whose depth is O(log n), with the path kept on an explicit stack
+        Node[] path = new Node[64];
+        int depth = 0;
+        long result = 0;
+        for (int i = 0; i < count; i++) {
+            while (true) {
+                while (current != null) {
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth * 2);
+                    }
+                    path[depth++] = current;
+                    current = current.left;
+                }
+                if (depth == 0 || compare(path[depth - 1].date, path[depth - 1].second, dates[i], seconds[i]) > 0) {
+                    break;
+                }
+                Node next = path[--depth];
+                result += next.amount;
+                current = next.right;
+            }
+            consumer.accept(result);
+        }
+    }
+
+    /**
+     *
+     * @return The sum of every quantity held by this index
+     */
+    public long total() {
+        return sum(root);
+    }
+
+    private static Node find(Node node, long date, int second) {
+        while (node != null) {
+            int cmp = compare(date, second, node.date, node.second);
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    private static Node update(Node node, long date, int second, long amount, int count) {
+        int cmp = compare(date, second, node.date, node.second);
+        if (cmp == 0) {
+            return node.with(node.amount + amount, node.count + count, node.left, node.right);
+        }
+        if (cmp < 0) {
+            return node.with(node.amount, node.count, update(node.left, date, second, amount, count), node.right);
+        }
+        return node.with(node.amount, node.count, node.left, update(node.right, date, second, amount, count));
+    }
+
+    private static Node delete(Node node, long date, int second) {
+        int cmp = compare(date, second, node.date, node.second);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            return node.with(node.amount, node.count, delete(node.left, date, second), node.right);
+        }
+        return node.with(node.amount, node.count, node.left, delete(node.right, date, second));
+    }
+
+    /*
+     * Splits the tree in the nodes strictly before the point in time given and the ones after it.
+     */
+    private static Node[] split(Node node, long date, int second) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(node.date, node.second, date, second) < 0) {
+            Node[] parts = split(node.right, date, second);
+            return new Node[]{node.with(node.amount, node.count, node.left, parts[0]), parts[1]};
+        }
+        Node[] parts = split(node.left, date, second);
+        return new Node[]{parts[0], node.with(node.amount, node.count, parts[1], node.right)};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            return left.with(left.amount, left.count, left.left, merge(left.right, right));
+        }
+        return right.with(right.amount, right.count, merge(left, right.left), right.right);
+    }
+
+    private static int compare(long date, int second, long otherDate, int otherSecond) {
+        int cmp = Long.compare(date, otherDate);
+        return cmp != 0 ? cmp : Integer.compare(second, otherSecond);
+    }
+
+    private static int priority(long date, int second) {
+        long h = date * 0x9E3779B97F4A7C15L + second;
+        h ^= (h >>> 33);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+
+    private static long sum(Node node) {
+        return node == null ? 0 : node.sum;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final long date;
+        private final int second;
+        private final long amount;
+        private final int count;
+        private final int priority;
+        private final Node left;
+        private final Node right;
+        private final long sum;
+        private final int size;
+
+        private Node(long date, int second, long amount, int count, int priority, Node left, Node right) {
+            this.date = date;
+            this.second = second;
+            this.amount = amount;
+            this.count = count;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.sum = sum(left) + amount + sum(right);
+            this.size = size(left) + 1 + size(right);
+        }
+
+        private Node with(long amount, int count, Node left, Node right) {
+            return new Node(date, second, amount, count, priority, left, right);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package domain.indexes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This ADT represents an inverted index over the descriptions of a group of objects.<br>
+ * Each description is split in its trigrams (every sequence of 3 consecutive characters) and<br>
+ * for each trigram the index keeps the objects whose description contains it (its posting list).<br>
+ * An object whose description contains a word of at least 3 characters is then among the ones<br>
+ * found in all the posting lists of the word's trigrams, so a lookup only needs to visit the<br>
+ * shortest of them. The candidates found must still be verified with {@code String.contains},<br>
+ * since having all the trigrams of a word does not mean containing the word.<br>
+ * Objects are compared by identity.
+ *
+ * @param <T> The type of the objects indexed
+ */
+public class DescriptionIndex<T> {
+    private static final int GRAM = 3;
+
+    private final Map<Long, Set<T>> postings;
+
+    /**
+     * Creates a new empty description index.
+     */
+    public DescriptionIndex() {
+        this.postings = new HashMap<>();
+    }
+
+    /**
+     * Adds an object to this index.<br>
+     * Raises {@code NullPointerException} if item or description are null.
+     *
+     * @param item The object to be indexed
+     * @param description The description of the object
+     */
+    public void add(T item, String description) {
+        if (item == null || description == null) {
+            throw new NullPointerException("Item or description are null");
+        }
+
+        for (int i = 0; i + GRAM <= description.length(); i++) {
+            postings.computeIfAbsent(trigram(description, i), key -> Collections.newSetFromMap(new IdentityHashMap<>())).add(item);
+        }
+    }
+
+    /**
+     * Removes an object from this index.<br>
+     * Raises {@code NullPointerException} if item or description are null.
+     *
+     * @param item The object to be removed
+     * @param description The description of the object, the same given when it was added
+     */
+    public void remove(T item, String description) {
+        if (item == null || description == null) {
+            throw new NullPointerException("Item or description are null");
+        }
+
+        for (int i = 0; i + GRAM <= description.length(); i++) {
+            Long key = trigram(description, i);
+            Set<T> posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(item);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the objects whose description may contain at least one of the words given.<br>
+     * Every object whose description does contain one of the words is part of the result,<br>
+     * but the result may contain objects whose description doesn't.<br>
+     * If at least one of the words is shorter than 3 characters the index cannot tell anything<br>
+     * about it, therefore null is returned meaning that every object is a candidate.<br>
+     * Raises {@code NullPointerException} if words is null or contains null.
+     *
+     * @param words The words to search
+     * @return A new list with the candidates found (without duplicates, in no particular order)
+     *         or null if no object can be excluded
+     */
+    public List<T> candidates(Collection<String> words) {
+        if (words == null) {
+            throw new NullPointerException("Words are null");
+        }
+        for (String word : words) {
+            if (word.length() < GRAM) {
+                return null;
+            }
+        }
+
+        Set<T> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String word : words) {
+            result.addAll(candidates(word));
+        }
+        return new ArrayList<>(result);
+    }
+
+    private List<T> candidates(String word) {
+        List<Set<T>> lists = new ArrayList<>();
+        Set<T> shortest = null;
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            Set<T> posting = postings.get(trigram(word, i));
+            if (posting == null) {
+                return Collections.emptyList();
+            }
+            lists.add(posting);
+            if (shortest == null || posting.size() < shortest.size()) {
+                shortest = posting;
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        for (T item : shortest) {
+            boolean inAll = true;
+            for (int i = 0; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i) == shortest || lists.get(i).contains(item);
+            }
+            if (inAll) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    private static Long trigram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+}
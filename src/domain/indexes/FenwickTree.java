@@ -0,0 +1,88 @@
+package domain.indexes;
+
+import java.util.TreeMap;
+
+/**
+ * This ADT represents a Fenwick (binary indexed) tree of sums over long keys.<br>
+ * The keys are split in blocks of {@value #BLOCK_SIZE} consecutive keys, each one a Fenwick tree of its own,<br>
+ * created the first time one of its keys is updated and keeping the total of its keys as well.<br>
+ * Updating a key costs O(log s + log b), s being the size of a block and b the number of blocks created,<br>
+ * while summing the keys up to a given one costs O(log s + p), p being the number of blocks before it.<br>
+ * The memory taken only depends on the blocks in use, so a key far from the others (for instance a date<br>
+ * mistyped) takes a block of its own instead of a tree spanning every key in between.
+ */
+final class FenwickTree {
+    private static final int BLOCK_BITS = 9;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private final TreeMap<Long, Block> blocks;
+    // Updates come mostly in order of date, so the block last updated is kept at hand
+    private long lastIndex;
+    private Block lastBlock;
+
+    FenwickTree() {
+        this.blocks = new TreeMap<>();
+    }
+
+    /**
+     * Adds a quantity to the key given.
+     *
+     * @param key The key
+     * @param delta The quantity to add (negative to subtract)
+     */
+    void add(long key, long delta) {
+        long index = key >> BLOCK_BITS;
+        Block block = lastBlock;
+        if (block == null || index != lastIndex) {
+            block = blocks.computeIfAbsent(index, newIndex -> new Block());
+            lastIndex = index;
+            lastBlock = block;
+        }
+        block.total += delta;
+        for (int i = offset(key) + 1; i <= BLOCK_SIZE; i += i & -i) {
+            block.tree[i] += delta;
+        }
+    }
+
+    /**
+     *
+     * @param key The last key to sum
+     * @return The sum of the quantities of the keys up to the one given (included)
+     */
+    long sumUpTo(long key) {
+        long index = key >> BLOCK_BITS;
+        long result = 0;
+        for (Block block : blocks.headMap(index, false).values()) {
+            result += block.total;
+        }
+        Block block = blocks.get(index);
+        if (block != null) {
+            for (int i = offset(key) + 1; i > 0; i -= i & -i) {
+                result += block.tree[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @param from The first key to sum
+     * @param to The last key to sum
+     * @return The sum of the quantities of the keys between the two given (both included), or 0 if from is after to
+     */
+    long sum(long from, long to) {
+        return from > to ? 0 : sumUpTo(to) - sumUpTo(from - 1);
+    }
+
+    private static int offset(long key) {
+        return (int) (key & (BLOCK_SIZE - 1));
+    }
+
+    /*
+     * The tree of the keys of a block, indexed from 1, and their total.
+     */
+    private static final class Block {
+        private final long[] tree = new long[BLOCK_SIZE + 1];
+        private long total;
+    }
+}
@@ -0,0 +1,155 @@
+package domain.indexes;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * This ADT represents an index over the signed quantities of money value (in minor units) of a budget,<br>
+ * rolled up by day, by week and by month of the date they take place at, in the time zone given.<br>
+ * Each rollup is a Fenwick tree keyed by its period, split in blocks of consecutive periods (see {@code FenwickTree}),<br>
+ * so that both updating a quantity and summing the quantities of a range of periods cost O(log n) within a block,<br>
+ * plus a step for each block of periods in use before. Quantities can be added at any date, also before<br>
+ * the ones already held, or far from them: memory grows with the blocks in use, not with the span of the dates.
+ */
+public class RollupIndex {
+    // The epoch day of the Monday starting the week 0 (1970-01-01 is a Thursday)
+    private static final long FIRST_MONDAY = -3;
+    // values() gives a new array at each call, and add is called for every movement
+    private static final RollupPeriod[] PERIODS = RollupPeriod.values();
+
+    private final ZoneId zone;
+    private final Map<RollupPeriod, FenwickTree> rollups;
+    private long lastDate;
+    private LocalDate lastDay;
+
+    /**
+     * Creates a new empty rollup index.<br>
+     * Raises {@code NullPointerException} if zone is null.
+     *
+     * @param zone The time zone the dates are rolled up in
+     */
+    public RollupIndex(ZoneId zone) {
+        if (zone == null) {
+            throw new NullPointerException("Zone is null");
+        }
+
+        this.zone = zone;
+        this.rollups = new EnumMap<>(RollupPeriod.class);
+        for (RollupPeriod period : RollupPeriod.values()) {
+            this.rollups.put(period, new FenwickTree());
+        }
+    }
+
+    /**
+     *
+     * @return The time zone the dates are rolled up in
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Adds a signed quantity of money value at the date given.
+     *
+     * @param date The date (in milliseconds)
+     * @param amount The signed quantity, in minor units, to add (positive for credits, negative for debits)
+     */
+    public void add(long date, long amount) {
+        LocalDate day = dayOf(date);
+        for (RollupPeriod period : PERIODS) {
+            rollups.get(period).add(key(period, day), amount);
+        }
+    }
+
+    /**
+     * Removes a signed quantity of money value, previously added, from the date given.
+     *
+     * @param date The date (in milliseconds)
+     * @param amount The signed quantity, in minor units, to remove (positive for credits, negative for debits)
+     */
+    public void remove(long date, long amount) {
+        add(date, -amount);
+    }
+
+    /**
+     * Sums the signed quantities of the periods between the ones holding the two days given (both included).<br>
+     * Raises {@code NullPointerException} if period, from or to are null.
+     *
+     * @param period The length of the periods
+     * @param from A day of the first period
+     * @param to A day of the last period
+     * @return The signed sum, in minor units, of the periods, or 0 if from is after to
+     */
+    public long sum(RollupPeriod period, LocalDate from, LocalDate to) {
+        if (period == null || from == null || to == null) {
+            throw new NullPointerException("Period, from or to are null");
+        }
+
+        return rollups.get(period).sum(key(period, from), key(period, to));
+    }
+
+    /**
+     * Sums the signed quantities of every period up to the one holding the day given (included).<br>
+     * Raises {@code NullPointerException} if period or day are null.
+     *
+     * @param period The length of the periods
+     * @param day A day of the last period
+     * @return The signed sum, in minor units, up to the end of the period
+     */
+    public long sumUpTo(RollupPeriod period, LocalDate day) {
+        if (period == null || day == null) {
+            throw new NullPointerException("Period or day are null");
+        }
+
+        return rollups.get(period).sumUpTo(key(period, day));
+    }
+
+    /**
+     * Raises {@code NullPointerException} if period or day are null.
+     *
+     * @param period The length of the period
+     * @param day A day of the period
+     * @return The first day of the period holding the day given
+     */
+    public static LocalDate startOf(RollupPeriod period, LocalDate day) {
+        if (period == null || day == null) {
+            throw new NullPointerException("Period or day are null");
+        }
+
+        switch (period) {
+            case WEEK:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+
+    /*
+     * The movements of a transaction are added one after the other, all at its date, so the last day is cached.
+     */
+    private LocalDate dayOf(long date) {
+        if (lastDay == null || date != lastDate) {
+            lastDay = Instant.ofEpochMilli(date).atZone(zone).toLocalDate();
+            lastDate = date;
+        }
+        return lastDay;
+    }
+
+    private static long key(RollupPeriod period, LocalDate day) {
+        switch (period) {
+            case WEEK:
+                return Math.floorDiv(day.toEpochDay() - FIRST_MONDAY, 7);
+            case MONTH:
+                return day.getYear() * 12L + day.getMonthValue() - 1;
+            default:
+                return day.toEpochDay();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package domain.indexes;
+
+/**
+ * This enumerator represents the length of the periods the movements of a budget are rolled up by<br>
+ * (see {@code RollupIndex}): days, weeks starting on Monday, and calendar months.
+ */
+public enum RollupPeriod {
+    DAY,
+    WEEK,
+    MONTH,
+}
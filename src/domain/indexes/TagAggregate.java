@@ -0,0 +1,72 @@
+package domain.indexes;
+
+import utilities.money.Money;
+
+/**
+ * This ADT represents the aggregates of the quantities of money value of the movements carrying a tag,<br>
+ * in the transactions of a type: their sum, their number, the smallest and the largest of them.<br>
+ * It is immutable: it describes the movements as they were when it has been given.
+ */
+public final class TagAggregate {
+    private final long sum;
+    private final int count;
+    private final long min;
+    private final long max;
+
+    TagAggregate(long sum, int count, long min, long max) {
+        this.sum = sum;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     *
+     * @return The sum of the quantities of the movements
+     */
+    public Money getSum() {
+        return Money.ofMinorUnits(sum);
+    }
+
+    /**
+     *
+     * @return The number of the movements
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     *
+     * @return The smallest quantity of the movements
+     */
+    public Money getMin() {
+        return Money.ofMinorUnits(min);
+    }
+
+    /**
+     *
+     * @return The largest quantity of the movements
+     */
+    public Money getMax() {
+        return Money.ofMinorUnits(max);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TagAggregate that = (TagAggregate) o;
+        return sum == that.sum && count == that.count && min == that.min && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(sum) * 31 + count;
+    }
+
+    @Override
+    public String toString() {
+        return "sum=" + getSum() + ", count=" + count + ", min=" + getMin() + ", max=" + getMax();
+    }
+}
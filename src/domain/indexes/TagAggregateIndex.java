@@ -0,0 +1,366 @@
+package domain.indexes;
+
+import domain.TransactionType;
+import domain.tags.TagSet;
+
+import java.util.Arrays;
+
+/**
+ * This ADT represents an index over the quantities of money value (in minor units) of the movements of a budget,<br>
+ * aggregated by tag and by type of transaction: for every tag (identified by its id, see {@code TagDictionary})<br>
+ * and type it keeps the sum and the number of the quantities, along with the quantities themselves as a multiset,<br>
+ * so that the smallest and the largest of them are known even after one has been removed.<br>
+ * The tags are numbered again, in the order they are first aggregated, through a small table of their ids,<br>
+ * so that the index takes memory for the tags of its budget only, whatever the number of tags in the dictionary.<br>
+ * <br>
+ * Adding or removing a movement costs O(t), t being the number of its tags, and reading the aggregates of a tag<br>
+ * costs O(1), or O(d), d being the number of its distinct quantities, after its smallest or largest one has been<br>
+ * removed altogether. Many movements can be added at once, grouping their quantities by tag and type first,<br>
+ * so that the multiset of each tag and type is filled once instead of movement by movement.
+ */
+public class TagAggregateIndex {
+    private static final int TYPES = TransactionType.values().length;
+
+    // The id of each tag aggregated, by its own number, and the open addressing table from an id to its number + 1
+    private int[] ids;
+    private int tags;
+    private int[] numbers;
+    private Aggregate[] aggregates;
+
+    /**
+     * Creates a new empty tag aggregate index.
+     */
+    public TagAggregateIndex() {
+        this.ids = new int[8];
+        this.tags = 0;
+        this.numbers = new int[16];
+        this.aggregates = new Aggregate[8 * TYPES];
+    }
+
+    /**
+     * Adds the quantity of a movement to the aggregates of each of its tags.<br>
+     * Raises {@code NullPointerException} if tags or type are null.
+     *
+     * @param tags The set of the tag ids of the movement
+     * @param type The type of the transaction of the movement
+     * @param amount The quantity, in minor units, of the movement
+     */
+    public void add(TagSet tags, TransactionType type, long amount) {
+        if (tags == null || type == null) {
+            throw new NullPointerException("Tags or type are null");
+        }
+
+        for (int id : tags.toArray()) {
+            int slot = slot(numberFor(id), type);
+            if (aggregates[slot] == null) {
+                aggregates[slot] = new Aggregate();
+            }
+            aggregates[slot].add(amount);
+        }
+    }
+
+    /**
+     * Adds the quantities of many movements to the aggregates of each of their tags, as if they were added one<br>
+     * by one but grouping them by tag and type first. The movements are the first count elements of the arrays,<br>
+     * the i-th of them having tags[i], types[i] and amounts[i]; a movement whose type is null is skipped.<br>
+     * Raises {@code NullPointerException} if tags, types or amounts are null, or if tags holds null.<br>
+     * Raises {@code IllegalArgumentException} if count is negative or larger than one of the arrays.
+     *
+     * @param tags The sets of the tag ids of the movements
+     * @param types The types of the transactions of the movements
+     * @param amounts The quantities, in minor units, of the movements
+     * @param count The number of movements
+     */
+    public void addAll(TagSet[] tags, TransactionType[] types, long[] amounts, int count) {
+        if (tags == null || types == null || amounts == null) {
+            throw new NullPointerException("Tags, types or amounts are null");
+        }
+        if (count < 0 || count > tags.length || count > types.length || count > amounts.length) {
+            throw new IllegalArgumentException("Count must be between 0 and the length of the arrays");
+        }
+
+        // Numbering the tags first, then counting the quantities of each slot and grouping them, so that each multiset is filled once
+        int[][] slots = new int[count][];
+        for (int i = 0; i < count; i++) {
+            if (types[i] == null) {
+                continue;
+            }
+            slots[i] = tags[i].toArray();
+            for (int k = 0; k < slots[i].length; k++) {
+                slots[i][k] = numberFor(slots[i][k]);
+            }
+        }
+        int[] sizes = new int[aggregates.length];
+        for (int i = 0; i < count; i++) {
+            if (slots[i] == null) {
+                continue;
+            }
+            for (int k = 0; k < slots[i].length; k++) {
+                slots[i][k] = slot(slots[i][k], types[i]);
+                sizes[slots[i][k]]++;
+            }
+        }
+        long[][] grouped = new long[sizes.length][];
+        for (int slot = 0; slot < sizes.length; slot++) {
+            if (sizes[slot] > 0) {
+                grouped[slot] = new long[sizes[slot]];
+                sizes[slot] = 0;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (slots[i] == null) {
+                continue;
+            }
+            for (int slot : slots[i]) {
+                grouped[slot][sizes[slot]++] = amounts[i];
+            }
+        }
+
+        for (int slot = 0; slot < grouped.length; slot++) {
+            if (grouped[slot] != null) {
+                if (aggregates[slot] == null) {
+                    aggregates[slot] = new Aggregate();
+                }
+                aggregates[slot].addAll(grouped[slot]);
+            }
+        }
+    }
+
+    /**
+     * Removes the quantity of a movement from the aggregates of each of its tags.<br>
+     * Raises {@code NullPointerException} if tags or type are null.
+     *
+     * @param tags The set of the tag ids of the movement
+     * @param type The type of the transaction of the movement
+     * @param amount The quantity, in minor units, of the movement
+     */
+    public void remove(TagSet tags, TransactionType type, long amount) {
+        if (tags == null || type == null) {
+            throw new NullPointerException("Tags or type are null");
+        }
+
+        for (int id : tags.toArray()) {
+            int number = numberOf(id);
+            if (number >= 0 && aggregates[slot(number, type)] != null) {
+                aggregates[slot(number, type)].remove(amount);
+            }
+        }
+    }
+
+    /**
+     * Gives the aggregates of the movements carrying a tag in the transactions of a type.<br>
+     * Raises {@code NullPointerException} if type is null.
+     *
+     * @param id The id of the tag
+     * @param type The type of transaction
+     * @return The aggregates of the tag and the type given, or null if no movement is aggregated
+     */
+    public TagAggregate get(int id, TransactionType type) {
+        if (type == null) {
+            throw new NullPointerException("Type is null");
+        }
+
+        int number = id < 0 ? -1 : numberOf(id);
+        if (number < 0 || aggregates[slot(number, type)] == null) {
+            return null;
+        }
+        return aggregates[slot(number, type)].toAggregate();
+    }
+
+    /**
+     *
+     * @return A new array with the id of every tag that has been aggregated, in the order they were first aggregated
+     */
+    public int[] ids() {
+        return Arrays.copyOf(ids, tags);
+    }
+
+    private static int slot(int number, TransactionType type) {
+        return number * TYPES + type.ordinal();
+    }
+
+    // The number of the tag id given, or -1 if it has never been aggregated
+    private int numberOf(int id) {
+        int number = numbers[find(id)];
+        return number - 1;
+    }
+
+    // The number of the tag id given, numbering it if it has never been aggregated
+    private int numberFor(int id) {
+        int position = find(id);
+        if (numbers[position] != 0) {
+            return numbers[position] - 1;
+        }
+        if (tags == ids.length) {
+            ids = Arrays.copyOf(ids, tags * 2);
+            aggregates = Arrays.copyOf(aggregates, tags * 2 * TYPES);
+        }
+        ids[tags] = id;
+        numbers[position] = ++tags;
+        if (tags * 4 > numbers.length * 3) {
+            numbers = new int[numbers.length * 2];
+            for (int number = 1; number <= tags; number++) {
+                numbers[find(ids[number - 1])] = number;
+            }
+        }
+        return tags - 1;
+    }
+
+    // The position of the table holding the tag id given, or the empty one where it would be
+    private int find(int id) {
+        int mask = numbers.length - 1;
+        int position = (id * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(numbers.length));
+        while (numbers[position] != 0 && ids[numbers[position] - 1] != id) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    /*
+     * The aggregates of a tag and a type. The quantities are kept as a multiset, in an open addressing table
+     * (linear probing) of primitive quantities and their number of occurrences, so that adding and removing one
+     * costs O(1) without allocating. The smallest and the largest quantities are kept as well: removing the last
+     * occurrence of one of them marks it stale, and it is found again scanning the table when next read.
+     */
+    private static final class Aggregate {
+        private long[] amounts = new long[8];
+        private int[] occurrences = new int[8];
+        private int distinct;
+        private long sum;
+        private int count;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private boolean stale;
+
+        private void add(long amount) {
+            if ((distinct + 1) * 4 > amounts.length * 3) {
+                rehash(amounts.length * 2);
+            }
+            int slot = find(amount);
+            if (occurrences[slot] == 0) {
+                amounts[slot] = amount;
+                distinct++;
+            }
+            occurrences[slot]++;
+            sum += amount;
+            count++;
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+
+        // Sorting the quantities first, so that the table is grown once and each distinct quantity is placed once
+        private void addAll(long[] values) {
+            Arrays.sort(values);
+            int runs = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    runs++;
+                }
+            }
+            int capacity = amounts.length;
+            while ((distinct + runs) * 4 > capacity * 3) {
+                capacity *= 2;
+            }
+            if (capacity != amounts.length) {
+                rehash(capacity);
+            }
+            for (int i = 0, j; i < values.length; i = j) {
+                j = i + 1;
+                while (j < values.length && values[j] == values[i]) {
+                    j++;
+                }
+                int slot = find(values[i]);
+                if (occurrences[slot] == 0) {
+                    amounts[slot] = values[i];
+                    distinct++;
+                }
+                occurrences[slot] += j - i;
+                sum += values[i] * (j - i);
+            }
+            count += values.length;
+            min = Math.min(min, values[0]);
+            max = Math.max(max, values[values.length - 1]);
+        }
+
+        private void remove(long amount) {
+            int slot = find(amount);
+            if (occurrences[slot] == 0) {
+                return;
+            }
+            sum -= amount;
+            count--;
+            if (--occurrences[slot] == 0) {
+                delete(slot);
+                stale |= amount == min || amount == max;
+            }
+        }
+
+        // Readers may run at once (see ConcurrentBudget), while refreshing the smallest and the largest quantities
+        private synchronized TagAggregate toAggregate() {
+            if (count == 0) {
+                return null;
+            }
+            if (stale) {
+                min = Long.MAX_VALUE;
+                max = Long.MIN_VALUE;
+                for (int slot = 0; slot < amounts.length; slot++) {
+                    if (occurrences[slot] > 0) {
+                        min = Math.min(min, amounts[slot]);
+                        max = Math.max(max, amounts[slot]);
+                    }
+                }
+                stale = false;
+            }
+            return new TagAggregate(sum, count, min, max);
+        }
+
+        // The slot holding the quantity given, or the empty one where it would be
+        private int find(long amount) {
+            int mask = amounts.length - 1;
+            int slot = home(amount);
+            while (occurrences[slot] != 0 && amounts[slot] != amount) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Empties a slot, moving back the following quantities that could not be placed in it
+        private void delete(int slot) {
+            int mask = amounts.length - 1;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (occurrences[next] == 0) {
+                    break;
+                }
+                int home = home(amounts[next]);
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    amounts[slot] = amounts[next];
+                    occurrences[slot] = occurrences[next];
+                    slot = next;
+                }
+            }
+            occurrences[slot] = 0;
+            distinct--;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldAmounts = amounts;
+            int[] oldOccurrences = occurrences;
+            amounts = new long[capacity];
+            occurrences = new int[capacity];
+            for (int slot = 0; slot < oldAmounts.length; slot++) {
+                if (oldOccurrences[slot] > 0) {
+                    int target = find(oldAmounts[slot]);
+                    amounts[target] = oldAmounts[slot];
+                    occurrences[target] = oldOccurrences[slot];
+                }
+            }
+        }
+
+        // Fibonacci hashing: the high bits of the product, spreading quantities that differ only in their high digits
+        private int home(long amount) {
+            return (int) ((amount * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(amounts.length)));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package domain.indexes;
+
+import domain.Transaction;
+import domain.TransactionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * This ADT represents an index over the transactions of a budget.<br>
+ * Transactions are kept ordered by their date, both all together and partitioned<br>
+ * by their type, so that lookups by date range and/or type cost proportionally<br>
+ * to the number of transactions found (plus O(log n)) instead of the whole budget.<br>
+ * Transactions sharing the same date are kept in insertion order.
+ */
+public class TransactionIndex {
+    private final NavigableMap<Long, List<Transaction>> byDate;
+    private final Map<TransactionType, NavigableMap<Long, List<Transaction>>> byType;
+
+    /**
+     * Creates a new empty transaction index.
+     */
+    public TransactionIndex() {
+        this.byDate = new TreeMap<>();
+        this.byType = new EnumMap<>(TransactionType.class);
+        for (TransactionType type : TransactionType.values()) {
+            this.byType.put(type, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Adds a transaction to this index.<br>
+     * Raises {@code NullPointerException} if transaction is null.
+     *
+     * @param transaction The transaction to be indexed
+     */
+    public void add(Transaction transaction) {
+        if (transaction == null) {
+            throw new NullPointerException("Transaction is null");
+        }
+
+        long date = transaction.getDate().getTime();
+        byDate.computeIfAbsent(date, key -> new ArrayList<>(1)).add(transaction);
+        if (transaction.getTransactionType() != null) {
+            byType.get(transaction.getTransactionType()).computeIfAbsent(date, key -> new ArrayList<>(1)).add(transaction);
+        }
+    }
+
+    /**
+     * Removes a transaction (the same object) from this index, if present.<br>
+     * Raises {@code NullPointerException} if transaction is null.
+     *
+     * @param transaction The transaction to be removed
+     */
+    public void remove(Transaction transaction) {
+        if (transaction == null) {
+            throw new NullPointerException("Transaction is null");
+        }
+
+        long date = transaction.getDate().getTime();
+        removeFrom(byDate, date, transaction);
+        if (transaction.getTransactionType() != null) {
+            removeFrom(byType.get(transaction.getTransactionType()), date, transaction);
+        }
+    }
+
+    /**
+     * Gives the transactions whose date is between the two given (both included), ordered by date.
+     *
+     * @param from The starting date (in milliseconds)
+     * @param to The ending date (in milliseconds)
+     * @return A new list containing the transactions found
+     */
+    public List<Transaction> range(long from, long to) {
+        return collect(byDate, from, to);
+    }
+
+    /**
+     * Gives the transactions of the type given whose date is between the two given (both included),
+     * ordered by date.<br>
+     * Raises {@code NullPointerException} if type is null.
+     *
+     * @param type The type of the transactions to find
+     * @param from The starting date (in milliseconds)
+     * @param to The ending date (in milliseconds)
+     * @return A new list containing the transactions found
+     */
+    public List<Transaction> range(TransactionType type, long from, long to) {
+        if (type == null) {
+            throw new NullPointerException("Type is null");
+        }
+
+        return collect(byType.get(type), from, to);
+    }
+
+    /**
+     * Gives lazily the transactions whose date is between the two given (both included), ordered by date:<br>
+     * reaching the first one costs O(log n), each following one O(1).<br>
+     * The iterator must not be used after this index has been modified.
+     *
+     * @param from The starting date (in milliseconds)
+     * @param to The ending date (in milliseconds)
+     * @return An immutable iterator over the transactions found
+     */
+    public Iterator<Transaction> iterator(long from, long to) {
+        return flatten(byDate, from, to);
+    }
+
+    /**
+     * Gives lazily the transactions of the type given whose date is between the two given (both included),
+     * ordered by date (see {@code iterator(long, long)}).<br>
+     * Raises {@code NullPointerException} if type is null.
+     *
+     * @param type The type of the transactions to find
+     * @param from The starting date (in milliseconds)
+     * @param to The ending date (in milliseconds)
+     * @return An immutable iterator over the transactions found
+     */
+    public Iterator<Transaction> iterator(TransactionType type, long from, long to) {
+        if (type == null) {
+            throw new NullPointerException("Type is null");
+        }
+
+        return flatten(byType.get(type), from, to);
+    }
+
+    private static Iterator<Transaction> flatten(NavigableMap<Long, List<Transaction>> index, long from, long to) {
+        if (from > to) {
+            return Collections.emptyIterator();
+        }
+        Iterator<List<Transaction>> dates = index.subMap(from, true, to, true).values().iterator();
+        return new Iterator<>() {
+            private List<Transaction> sameDate = Collections.emptyList();
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                while (i >= sameDate.size() && dates.hasNext()) {
+                    sameDate = dates.next();
+                    i = 0;
+                }
+                return i < sameDate.size();
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("The iteration has no more elements");
+                }
+                return sameDate.get(i++);
+            }
+        };
+    }
+
+    private static List<Transaction> collect(NavigableMap<Long, List<Transaction>> index, long from, long to) {
+        List<Transaction> result = new ArrayList<>();
+        if (from > to) {
+            return result;
+        }
+        for (List<Transaction> sameDate : index.subMap(from, true, to, true).values()) {
+            result.addAll(sameDate);
+        }
+        return result;
+    }
+
+    private static void removeFrom(NavigableMap<Long, List<Transaction>> index, long date, Transaction transaction) {
+        List<Transaction> sameDate = index.get(date);
+        if (sameDate == null) {
+            return;
+        }
+        for (int i = 0; i < sameDate.size(); i++) {
+            if (sameDate.get(i) == transaction) {
+                sameDate.remove(i);
+                break;
+            }
+        }
+        if (sameDate.isEmpty()) {
+            index.remove(date);
+        }
+    }
+}
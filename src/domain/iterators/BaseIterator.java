@@ -1,36 +1,55 @@
 package domain.iterators;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
- * This ADT represents an immutable iterator over a collection
+ * This ADT represents an immutable iterator over a list.<br>
+ * The iterator is a cursor over the list given (no copy is made), therefore<br>
+ * if the owner of the list is structurally modified after the iterator creation<br>
+ * the iterator fails raising {@code ConcurrentModificationException}.
  *
- * @param <T> The type of the collection whose iterator is needed on
+ * @param <T> The type of the list whose iterator is needed on
  */
 public class BaseIterator<T> implements Iterator<T> {
     private final List<T> container;
+    private final Versioned owner;
+    private final int expectedVersion;
     private int i;
 
     /**
-     * Creates a new immutable iterator with the given collecton.
+     * Creates a new immutable iterator over the given list.<br>
+     * Raises {@code NullPointerException} if container or owner are null.
      *
-     * @param container The collection of elements whose iterator is needed on
+     * @param container The list of elements whose iterator is needed on
+     * @param owner The owner of the list, whose version is checked on every step
      */
-    public BaseIterator(Collection<T> container) {
-        this.container = new ArrayList<>(container);
+    public BaseIterator(List<T> container, Versioned owner) {
+        if(container == null || owner == null){
+            throw new NullPointerException("Container or owner are null");
+        }
+
+        this.container = container;
+        this.owner = owner;
+        this.expectedVersion = owner.getVersion();
         this.i = 0;
     }
 
     @Override
     public boolean hasNext() {
-        return this.container.size() > 0;
+        return i < this.container.size();
     }
 
     @Override
     public T next() {
+        if (owner.getVersion() != expectedVersion) {
+            throw new ConcurrentModificationException("The container has been modified while iterating");
+        }
+        if (i >= this.container.size()) {
+            throw new NoSuchElementException("The iteration has no more elements");
+        }
         return this.container.get(i++);
     }
 }
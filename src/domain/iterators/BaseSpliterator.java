@@ -0,0 +1,104 @@
+package domain.iterators;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * This ADT represents a spliterator over a list, the parallel counterpart of {@code BaseIterator}.<br>
+ * The spliterator is a range of positions over the list given (no copy is made) which<br>
+ * splits in two halves of the same size, therefore its size is always exact.<br>
+ * If the owner of the list is structurally modified after the spliterator creation<br>
+ * the traversal fails raising {@code ConcurrentModificationException}.<br>
+ * Elements are never null, and they can't be removed or replaced through the spliterator.
+ *
+ * @param <T> The type of the list whose spliterator is needed on
+ */
+public class BaseSpliterator<T> implements Spliterator<T> {
+    private final List<T> container;
+    private final Versioned owner;
+    private final int expectedVersion;
+    private final int characteristics;
+    private int from;
+    private final int to;
+
+    /**
+     * Creates a new spliterator over the given list, reporting its order as the encounter order.<br>
+     * Raises {@code NullPointerException} if container or owner are null.
+     *
+     * @param container The list of elements whose spliterator is needed on
+     * @param owner The owner of the list, whose version is checked during traversal
+     */
+    public BaseSpliterator(List<T> container, Versioned owner) {
+        this(container, owner, true);
+    }
+
+    /**
+     * Creates a new spliterator over the given list.<br>
+     * Raises {@code NullPointerException} if container or owner are null.
+     *
+     * @param container The list of elements whose spliterator is needed on
+     * @param owner The owner of the list, whose version is checked during traversal
+     * @param ordered True - if the order of the list is meaningful and has to be reported as the encounter order<br>
+     *                False - otherwise
+     */
+    public BaseSpliterator(List<T> container, Versioned owner, boolean ordered) {
+        this(container, owner, owner.getVersion(), 0, container.size(),
+                SIZED | SUBSIZED | NONNULL | (ordered ? ORDERED : 0));
+    }
+
+    private BaseSpliterator(List<T> container, Versioned owner, int expectedVersion, int from, int to, int characteristics) {
+        this.container = container;
+        this.owner = owner;
+        this.expectedVersion = expectedVersion;
+        this.from = from;
+        this.to = to;
+        this.characteristics = characteristics;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (from >= to) {
+            return false;
+        }
+        checkVersion();
+        action.accept(container.get(from++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        for (; from < to; from++) {
+            checkVersion();
+            action.accept(container.get(from));
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int middle = (from + to) >>> 1;
+        if (middle <= from) {
+            return null;
+        }
+        BaseSpliterator<T> prefix = new BaseSpliterator<>(container, owner, expectedVersion, from, middle, characteristics);
+        this.from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    private void checkVersion() {
+        if (owner.getVersion() != expectedVersion) {
+            throw new ConcurrentModificationException("The container has been modified while traversing");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package domain.iterators;
+
+/**
+ * This abstraction represents a container that keeps track<br>
+ * of the structural modifications made on it.
+ */
+public interface Versioned {
+
+    /**
+     *
+     * @return A number that changes every time the content of this container is structurally modified
+     */
+    int getVersion();
+}
@@ -0,0 +1,336 @@
+package domain.ledger;
+
+import domain.Budget;
+import domain.Transaction;
+import domain.TransactionType;
+import requests.RequestMode;
+import requests.classes.TransactionRequest;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * This ADT represents a ledger, meaning a group of budgets, each one identified by a key,<br>
+ * spread across shards that work in parallel.<br>
+ * <br>
+ * Each shard owns its budgets and a single thread of its own: every operation on a budget of<br>
+ * the ledger runs in the thread of its shard, so budgets are never shared between threads<br>
+ * and need no locking, and a budget stays in the caches of the core running its shard.<br>
+ * Operations over the whole ledger run on every shard at once, each one computing a partial<br>
+ * result over its budgets, then the partial results are combined.<br>
+ * <br>
+ * The budgets added to a ledger must be modified only through {@code execute}.<br>
+ * The only objects of a budget that leave the thread of its shard are the transactions given by<br>
+ * {@code getTransactions} (and whatever an operation run through {@code execute} returns): they are the live<br>
+ * objects of the budgets, so they must not be modified, and reading them while an operation modifies<br>
+ * their budget is not guarded.<br>
+ * A ledger must be closed when no longer needed, stopping the threads of its shards.
+ */
+public class Ledger implements AutoCloseable {
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new empty ledger with a shard for each processor available.
+     */
+    public Ledger() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new empty ledger with the number of shards given.<br>
+     * Raises {@code IllegalArgumentException} if shards is zero or negative.
+     *
+     * @param shards The number of shards of the new ledger
+     */
+    public Ledger(int shards) {
+        if(shards <= 0){
+            throw new IllegalArgumentException("The number of shards must be positive");
+        }
+
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     *
+     * @return The number of shards of this ledger
+     */
+    public int getShards() {
+        return shards.length;
+    }
+
+    /**
+     * Adds a budget to this ledger.<br>
+     * Raises {@code NullPointerException} if key or budget are null.<br>
+     * Raises {@code IllegalStateException} if a budget with the same key is already part of this ledger,<br>
+     * or if this ledger is closed.
+     *
+     * @param key The key identifying the budget in this ledger
+     * @param budget The budget to be added
+     */
+    public void addBudget(String key, Budget budget) {
+        if(key == null || budget == null){
+            throw new NullPointerException("Key or budget are null");
+        }
+
+        shardOf(key).call(budgets -> {
+            if(budgets.putIfAbsent(key, budget) != null){
+                throw new IllegalStateException("A budget with the same key is already part of this ledger");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Removes a budget from this ledger.<br>
+     * Raises {@code NullPointerException} if key is null.<br>
+     * Raises {@code IllegalStateException} if this ledger is closed.
+     *
+     * @param key The key identifying the budget in this ledger
+     * @return The budget removed or null if no budget has the key given
+     */
+    public Budget removeBudget(String key) {
+        if(key == null){
+            throw new NullPointerException("Key is null");
+        }
+
+        return shardOf(key).call(budgets -> budgets.remove(key));
+    }
+
+    /**
+     * Runs an operation on a budget of this ledger, in the thread of its shard, waiting for its result.<br>
+     * The operation must not call this ledger: the thread of its shard would wait for itself, or for another<br>
+     * shard possibly waiting for it in turn, so such a call is rejected. An operation involving budgets of<br>
+     * different keys, like a transfer, is made of one call of {@code execute} for each budget.<br>
+     * Raises {@code NullPointerException} if key or operation are null.<br>
+     * Raises {@code IllegalArgumentException} if no budget has the key given.<br>
+     * Raises {@code IllegalStateException} if this ledger is closed, or if called by an operation running on this ledger.<br>
+     * Any unchecked exception raised by the operation is raised again.
+     *
+     * @param key The key identifying the budget in this ledger
+     * @param operation The operation to run on the budget
+     * @param <T> The type of the result of the operation
+     * @return The result of the operation
+     */
+    public <T> T execute(String key, Function<? super Budget, ? extends T> operation) {
+        if(key == null || operation == null){
+            throw new NullPointerException("Key or operation are null");
+        }
+
+        return shardOf(key).call(budgets -> {
+            Budget budget = budgets.get(key);
+            if(budget == null){
+                throw new IllegalArgumentException("No budget has the key given");
+            }
+            return operation.apply(budget);
+        });
+    }
+
+    /**
+     * Raises {@code IllegalStateException} if this ledger is closed.
+     *
+     * @return The number of budgets in this ledger
+     */
+    public int size() {
+        return onEveryShard(Map::size, Integer::sum);
+    }
+
+    /**
+     * Calculate the total amount of the budgets of this ledger at the date and time specified<br>
+     * (see {@code Budget.calculateBalance}).<br>
+     * Raises {@code NullPointerException} if date or time are null.<br>
+     * Raises {@code IllegalStateException} if this ledger is closed.
+     *
+     * @param date The date in which calculate the amount
+     * @param time The time at which calculate the amount
+     * @return The sum of the amounts of every budget at the date and time given
+     */
+    public Money calculateBalance(Date date, Time time) {
+        if(date == null || time == null){
+            throw new NullPointerException("Date or time are null");
+        }
+
+        return Money.ofMinorUnits(onEveryShard(budgets -> {
+            long partial = 0;
+            for (Budget budget : budgets.values()) {
+                partial += budget.calculateBalance(date, time).getMinorUnits();
+            }
+            return partial;
+        }, Long::sum));
+    }
+
+    /**
+     * Gives the transactions, of every budget of this ledger, that match the request given,<br>
+     * with the modality given, ordered by date.<br>
+     * The transactions are the live objects of the budgets: they must not be modified, and reading them<br>
+     * while an operation modifies their budget is not guarded.<br>
+     * Raises {@code NullPointerException} if request or mode are null.<br>
+     * Raises {@code IllegalStateException} if this ledger is closed.
+     *
+     * @param request The request to be matched
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return A list of transactions, in which everyone match the request
+     */
+    public List<Transaction> getTransactions(TransactionRequest request, RequestMode mode) {
+        if(request == null || mode == null){
+            throw new NullPointerException("Request or mode are null");
+        }
+
+        List<Transaction> result = onEveryShard(budgets -> {
+            List<Transaction> partial = new ArrayList<>();
+            for (Budget budget : budgets.values()) {
+                partial.addAll(budget.getTransactions(request, mode));
+            }
+            return partial;
+        }, (first, second) -> {
+            first.addAll(second);
+            return first;
+        });
+        result.sort(Comparator.comparing(Transaction::getDate));
+        return result;
+    }
+
+    /**
+     * Gives, for each type of transaction, the sum of the quantities of the movements,<br>
+     * of every budget of this ledger, part of a transaction of that type.<br>
+     * Raises {@code IllegalStateException} if this ledger is closed.
+     *
+     * @return A new map with the total of each type of transaction
+     */
+    public Map<TransactionType, Money> getTotals() {
+        long[] totals = onEveryShard(budgets -> {
+            long[] partial = new long[TransactionType.values().length];
+            for (Budget budget : budgets.values()) {
+                for (TransactionType type : TransactionType.values()) {
+                    partial[type.ordinal()] += budget.getMovementColumns().total(type);
+                }
+            }
+            return partial;
+        }, (first, second) -> {
+            for (int i = 0; i < first.length; i++) {
+                first[i] += second[i];
+            }
+            return first;
+        });
+
+        Map<TransactionType, Money> result = new EnumMap<>(TransactionType.class);
+        for (TransactionType type : TransactionType.values()) {
+            result.put(type, Money.ofMinorUnits(totals[type.ordinal()]));
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return  True - if this ledger has been closed<br>
+     *          False - otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this ledger, stopping the threads of its shards once the operations already submitted are run.<br>
+     * Closing it again has no effect.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    /*
+     * A thread of a shard waiting for a shard of the same ledger could wait forever, for itself or for
+     * a shard waiting for it in turn, so the calls made by the operations running on this ledger are rejected.
+     */
+    private void checkNotOnShard() {
+        Thread current = Thread.currentThread();
+        for (Shard shard : shards) {
+            if(shard.thread == current){
+                throw new IllegalStateException("An operation running on the ledger must not call it");
+            }
+        }
+    }
+
+    private Shard shardOf(String key) {
+        return shards[Math.floorMod(key.hashCode(), shards.length)];
+    }
+
+    /*
+     * Runs the operation on every shard at once, then combines the partial results.
+     */
+    private <T> T onEveryShard(Function<Map<String, Budget>, T> operation, BinaryOperator<T> combiner) {
+        List<CompletableFuture<T>> partials = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            partials.add(shard.submit(operation));
+        }
+
+        T result = join(partials.get(0));
+        for (int i = 1; i < partials.size(); i++) {
+            result = combiner.apply(result, join(partials.get(i)));
+        }
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            if(e.getCause() instanceof Error){
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * A shard: its budgets are accessed only by its own thread.
+     */
+    private final class Shard {
+        private final Map<String, Budget> budgets;
+        private final ExecutorService executor;
+        private volatile Thread thread;
+
+        private Shard(int index) {
+            this.budgets = new HashMap<>();
+            this.executor = Executors.newSingleThreadExecutor(task -> {
+                thread = new Thread(task, "ledger-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private <T> CompletableFuture<T> submit(Function<Map<String, Budget>, T> operation) {
+            if(closed){
+                throw new IllegalStateException("The ledger is closed");
+            }
+            checkNotOnShard();
+            return CompletableFuture.supplyAsync(() -> operation.apply(budgets), executor);
+        }
+
+        private <T> T call(Function<Map<String, Budget>, T> operation) {
+            return join(submit(operation));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package domain.storage;
+
+import domain.Movement;
+import domain.Transaction;
+import domain.TransactionType;
+import domain.iterators.Versioned;
+import domain.tags.TagSet;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This ADT represents a column oriented (struct of arrays) store of the movements of a budget.<br>
+ * Each property of a movement needed for aggregating lives in its own primitive array,<br>
+ * so that balances, filters and totals run as tight loops over contiguous memory<br>
+ * instead of chasing one heap object per movement (see {@code AggregationKernels}).<br>
+ * Removing a row moves the last row in its place.
+ */
+public class ColumnarMovementStore implements MovementColumns, Versioned {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final byte NO_TYPE = -1;
+    private static final byte DEBIT = (byte) TransactionType.DEBIT.ordinal();
+    private static final int LAST_SECOND = 24 * 60 * 60 - 1;
+    // Bound for the dates stored and compared by the kernels, so that their differences cannot overflow
+    private static final long MAX_DATE = Long.MAX_VALUE / 4;
+
+    private long[] amounts;
+    private int[] seconds;
+    private long[] dates;
+    private byte[] types;
+    private TagSet[] tags;
+    private Movement[] movements;
+    private Map<Movement, Integer> rows;
+    private final List<Movement> movementList;
+    private int size;
+    private int version;
+
+    /**
+     * Creates a new empty columnar store.
+     */
+    public ColumnarMovementStore() {
+        this.amounts = new long[INITIAL_CAPACITY];
+        this.seconds = new int[INITIAL_CAPACITY];
+        this.dates = new long[INITIAL_CAPACITY];
+        this.types = new byte[INITIAL_CAPACITY];
+        this.tags = new TagSet[INITIAL_CAPACITY];
+        this.movements = new Movement[INITIAL_CAPACITY];
+        this.rows = new IdentityHashMap<>();
+        this.movementList = new AbstractList<>() {
+            @Override
+            public Movement get(int row) {
+                return movement(row);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+        this.size = 0;
+    }
+
+    /**
+     * Adds a row for the movement given, part of the transaction given.<br>
+     * Raises {@code NullPointerException} if transaction or movement are null.<br>
+     * Raises {@code IllegalStateException} if movement is already in this store.
+     *
+     * @param transaction The transaction of the movement
+     * @param movement The movement to be added
+     */
+    public void add(Transaction transaction, Movement movement) {
+        if (transaction == null || movement == null) {
+            throw new NullPointerException("Transaction or movement are null");
+        }
+        Integer previous = rows.put(movement, size);
+        if (previous != null) {
+            rows.put(movement, previous);
+            throw new IllegalStateException("The movement is already in this store");
+        }
+
+        if (size == amounts.length) {
+            grow();
+        }
+        amounts[size] = movement.getAmount().getMinorUnits();
+        seconds[size] = movement.getTime().toSecondOfDay();
+        dates[size] = boundDate(transaction.getDate().getTime());
+        types[size] = transaction.getTransactionType() == null ? NO_TYPE : (byte) transaction.getTransactionType().ordinal();
+        tags[size] = movement.getTagSet();
+        movements[size] = movement;
+        size++;
+        version++;
+    }
+
+    /**
+     * Makes room, if needed, for the number of rows given, so that adding up to that many rows<br>
+     * doesn't grow the columns again.
+     *
+     * @param capacity The number of rows to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= amounts.length) {
+            return;
+        }
+        resize(capacity);
+        if (rows.isEmpty()) {
+            rows = new IdentityHashMap<>(capacity);
+        }
+    }
+
+    /**
+     * Removes the row of the movement given.<br>
+     * Raises {@code NullPointerException} if movement is null.<br>
+     * Raises {@code IllegalStateException} if movement is not in this store.
+     *
+     * @param movement The movement to be removed
+     */
+    public void remove(Movement movement) {
+        if (movement == null) {
+            throw new NullPointerException("Movement is null");
+        }
+        Integer row = rows.remove(movement);
+        if (row == null) {
+            throw new IllegalStateException("The movement is not in this store");
+        }
+
+        int last = size - 1;
+        if (row != last) {
+            amounts[row] = amounts[last];
+            seconds[row] = seconds[last];
+            dates[row] = dates[last];
+            types[row] = types[last];
+            tags[row] = tags[last];
+            movements[row] = movements[last];
+            rows.put(movements[row], row);
+        }
+        tags[last] = null;
+        movements[last] = null;
+        size--;
+        version++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     *
+     * @return A read-only list view of the movement column, in row order
+     */
+    public List<Movement> asList() {
+        return movementList;
+    }
+
+    @Override
+    public long amount(int row) {
+        return amounts[checkRow(row)];
+    }
+
+    @Override
+    public int second(int row) {
+        return seconds[checkRow(row)];
+    }
+
+    @Override
+    public long date(int row) {
+        return dates[checkRow(row)];
+    }
+
+    @Override
+    public TransactionType type(int row) {
+        byte type = types[checkRow(row)];
+        return type == NO_TYPE ? null : TransactionType.values()[type];
+    }
+
+    @Override
+    public TagSet tags(int row) {
+        return tags[checkRow(row)];
+    }
+
+    @Override
+    public Movement movement(int row) {
+        return movements[checkRow(row)];
+    }
+
+    @Override
+    public long netAmountUpTo(long date, int second) {
+        return AggregationKernels.netAmountUpTo(amounts, dates, seconds, types, size, boundDate(date), second, DEBIT);
+    }
+
+    @Override
+    public long total(TransactionType type) {
+        if (type == null) {
+            throw new NullPointerException("Type is null");
+        }
+
+        return AggregationKernels.total(amounts, types, size, (byte) type.ordinal());
+    }
+
+    @Override
+    public int[] select(long minAmount, long maxAmount, int fromSecond, int toSecond) {
+        int[] result = new int[size];
+        int found = AggregationKernels.select(amounts, seconds, size, result,
+                Math.max(minAmount, 0), maxAmount, Math.max(fromSecond, 0), Math.min(toSecond, LAST_SECOND));
+        return Arrays.copyOf(result, found);
+    }
+
+    @Override
+    public long netAmount(int[] rows) {
+        if (rows == null) {
+            throw new NullPointerException("Rows are null");
+        }
+
+        long result = 0;
+        for (int row : rows) {
+            checkRow(row);
+            result += types[row] == DEBIT ? -amounts[row] : amounts[row];
+        }
+        return result;
+    }
+
+    private void grow() {
+        resize(amounts.length * 2);
+    }
+
+    private void resize(int capacity) {
+        amounts = Arrays.copyOf(amounts, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        types = Arrays.copyOf(types, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+        movements = Arrays.copyOf(movements, capacity);
+    }
+
+    private static long boundDate(long date) {
+        return Math.max(-MAX_DATE, Math.min(MAX_DATE, date));
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of bounds");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,110 @@
+package domain.storage;
+
+import domain.Movement;
+import domain.TransactionType;
+import domain.tags.TagSet;
+
+/**
+ * This abstraction represents a read-only, column oriented, view over the movements of a budget.<br>
+ * Every movement is a row, identified by an index between 0 (included) and size() (excluded),<br>
+ * and every property needed for aggregating is a column of primitive values.<br>
+ * Quantities of money value are in minor units (cents) of the default scale of {@code Money}.<br>
+ * Rows are not kept in any particular order and an index is valid only until the budget is modified.
+ */
+public interface MovementColumns {
+
+    /**
+     *
+     * @return The number of rows (movements)
+     */
+    int size();
+
+    /**
+     * Raises {@code IndexOutOfBoundsException} if row is not a valid index.
+     *
+     * @param row The index of the row
+     * @return The quantity of money value, in minor units, of the movement in the row
+     */
+    long amount(int row);
+
+    /**
+     * Raises {@code IndexOutOfBoundsException} if row is not a valid index.
+     *
+     * @param row The index of the row
+     * @return The second of the day of the movement in the row
+     */
+    int second(int row);
+
+    /**
+     * Raises {@code IndexOutOfBoundsException} if row is not a valid index.
+     *
+     * @param row The index of the row
+     * @return  The date (in milliseconds) of the transaction of the movement in the row, bounded between<br>
+     *          {@code -Long.MAX_VALUE / 4} and {@code Long.MAX_VALUE / 4} (about 73 million years from 1970)
+     */
+    long date(int row);
+
+    /**
+     * Raises {@code IndexOutOfBoundsException} if row is not a valid index.
+     *
+     * @param row The index of the row
+     * @return The type of the transaction of the movement in the row
+     */
+    TransactionType type(int row);
+
+    /**
+     * Raises {@code IndexOutOfBoundsException} if row is not a valid index.
+     *
+     * @param row The index of the row
+     * @return The set of the tag ids of the movement in the row
+     */
+    TagSet tags(int row);
+
+    /**
+     * Raises {@code IndexOutOfBoundsException} if row is not a valid index.
+     *
+     * @param row The index of the row
+     * @return The movement in the row
+     */
+    Movement movement(int row);
+
+    /**
+     * Calculates the signed sum (credits minus debits) of the movements whose point in time<br>
+     * is before or equal to the one given.
+     *
+     * @param date The date (in milliseconds) of the point in time
+     * @param second The second of the day of the point in time
+     * @return The signed sum of the movements up to the point in time given (included)
+     */
+    long netAmountUpTo(long date, int second);
+
+    /**
+     * Calculates the sum of the quantities of the movements of the type given.<br>
+     * Raises {@code NullPointerException} if type is null.
+     *
+     * @param type The type of transaction whose movements are summed
+     * @return The sum of the quantities of the movements of the type given
+     */
+    long total(TransactionType type);
+
+    /**
+     * Finds the rows whose quantity and time are inside the ranges given (all bounds included).
+     *
+     * @param minAmount The minimum quantity, in minor units
+     * @param maxAmount The maximum quantity, in minor units
+     * @param fromSecond The starting second of the day
+     * @param toSecond The ending second of the day
+     * @return The indexes of the rows found, in ascending order
+     */
+    int[] select(long minAmount, long maxAmount, int fromSecond, int toSecond);
+
+    /**
+     * Calculates the signed sum (credits minus debits) of the rows given.<br>
+     * Raises {@code NullPointerException} if rows is null.<br>
+     * Raises {@code IndexOutOfBoundsException} if at least one of the rows is not a valid index.
+     *
+     * @param rows The indexes of the rows to sum
+     * @return The signed sum of the rows given
+     */
+    long netAmount(int[] rows);
+}
@@ -0,0 +1,143 @@
+package domain.tags;
+
+import domain.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This ADT represents the dictionary of every tag in use.<br>
+ * It interns each distinct tag (as defined by {@code Tag.equals}) to a dense int id,<br>
+ * starting from 0 in order of first appearance, so that groups of tags can be<br>
+ * represented as compact sets of ids (see {@code TagSet}).<br>
+ * Ids are never reused nor released. It is safe to use the dictionary from multiple threads.
+ */
+public final class TagDictionary {
+    private static final TagDictionary INSTANCE = new TagDictionary();
+
+    private final Map<Tag, Integer> ids;
+    private volatile Tag[] tags;
+    private int size;
+
+    private TagDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.tags = new Tag[64];
+        this.size = 0;
+    }
+
+    /**
+     *
+     * @return The dictionary shared by the whole domain
+     */
+    public static TagDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gives the id of the tag given, assigning a new one if the tag has never been seen.<br>
+     * Raises {@code NullPointerException} if tag is null.
+     *
+     * @param tag The tag whose id is wanted
+     * @return The id of the tag
+     */
+    public int intern(Tag tag) {
+        if (tag == null) {
+            throw new NullPointerException("Tag is null");
+        }
+
+        Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(tag);
+            if (id != null) {
+                return id;
+            }
+            if (size == tags.length) {
+                tags = Arrays.copyOf(tags, size * 2);
+            }
+            tags[size] = tag;
+            ids.put(tag, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Gives the id of the tag given, without assigning one if the tag has never been seen<br>
+     * (for instance when the tag is only looked up).<br>
+     * Raises {@code NullPointerException} if tag is null.
+     *
+     * @param tag The tag whose id is wanted
+     * @return The id of the tag, or -1 if the tag has never been seen
+     */
+    public int idOf(Tag tag) {
+        if (tag == null) {
+            throw new NullPointerException("Tag is null");
+        }
+
+        Integer id = ids.get(tag);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gives the tag with the id given.<br>
+     * Raises {@code IllegalArgumentException} if no tag has the id given.
+     *
+     * @param id The id of the tag
+     * @return The tag with the id given
+     */
+    public Tag tagOf(int id) {
+        Tag[] current = tags;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("No tag has id " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Gives the set of the ids of the tags given, interning the ones never seen.<br>
+     * Raises {@code NullPointerException} if tags is null or contains null.
+     *
+     * @param tags The tags whose set is wanted
+     * @return The set of ids of the tags given
+     */
+    public TagSet setOf(Collection<Tag> tags) {
+        if (tags == null) {
+            throw new NullPointerException("Tags are null");
+        }
+
+        int[] result = new int[tags.size()];
+        int i = 0;
+        for (Tag tag : tags) {
+            result[i++] = intern(tag);
+        }
+        return TagSet.ofUnshared(result);
+    }
+
+    /**
+     *
+     * @return The number of tags interned so far
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Raises {@code NullPointerException} if set is null.
+     *
+     * @param set A set of ids given by this dictionary
+     * @return A new list containing the tags of the set given, ordered by id
+     */
+    public List<Tag> tagsOf(TagSet set) {
+        List<Tag> result = new ArrayList<>(set.size());
+        for (int id : set.toArray()) {
+            result.add(tagOf(id));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package domain.tags;
+
+import domain.Tag;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * This ADT represents a group of tags searched by a request, as the set of their ids in the dictionary<br>
+ * (see {@code TagDictionary}), looked up without interning them, so that searching never makes the dictionary grow.<br>
+ * A tag the dictionary has never seen is part of no set of ids, so it is left out of the set; since it can be<br>
+ * interned afterwards, the set is looked up again each time the dictionary has grown, until every tag is known.<br>
+ * It is safe to use from multiple threads.
+ */
+public final class TagQuery {
+    private final Tag[] tags;
+    private volatile Resolution resolution;
+
+    /**
+     * Creates a new query of the tags given.<br>
+     * Raises {@code NullPointerException} if tags is null or contains null.
+     *
+     * @param tags The tags searched
+     */
+    public TagQuery(Collection<Tag> tags) {
+        if (tags == null) {
+            throw new NullPointerException("Tags are null");
+        }
+
+        this.tags = tags.toArray(new Tag[0]);
+        this.resolution = resolve();
+    }
+
+    /**
+     *
+     * @return The set of the ids of the tags searched that the dictionary knows
+     */
+    public TagSet getTagSet() {
+        Resolution current = resolution;
+        if (!current.complete && current.dictionarySize != TagDictionary.getInstance().size()) {
+            current = resolve();
+            resolution = current;
+        }
+        return current.set;
+    }
+
+    /*
+     * The size of the dictionary is read before the lookups, so that a tag interned meanwhile is looked up again.
+     */
+    private Resolution resolve() {
+        TagDictionary dictionary = TagDictionary.getInstance();
+        int size = dictionary.size();
+        int[] ids = new int[tags.length];
+        int count = 0;
+        for (Tag tag : tags) {
+            int id = dictionary.idOf(tag);
+            if (id >= 0) {
+                ids[count++] = id;
+            }
+        }
+        return new Resolution(TagSet.ofUnshared(Arrays.copyOf(ids, count)), size, count == tags.length);
+    }
+
+    /*
+     * The set of ids of the tags known when the dictionary had the size given.
+     */
+    private static final class Resolution {
+        private final TagSet set;
+        private final int dictionarySize;
+        private final boolean complete;
+
+        private Resolution(TagSet set, int dictionarySize, boolean complete) {
+            this.set = set;
+            this.dictionarySize = dictionarySize;
+            this.complete = complete;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package domain.tags;
+
+import java.util.Arrays;
+
+/**
+ * This ADT represents an immutable set of tag ids (see {@code TagDictionary}).<br>
+ * The set is a bitmap split in words of 64 ids, of which only the non-empty ones are stored<br>
+ * together with their position, in ascending order (in the spirit of a roaring bitmap).<br>
+ * With a small vocabulary this is a plain bitset of a few words, while with a large one<br>
+ * a set of few tags stays small whatever their ids.<br>
+ * Set operations walk the words of the two sets together and compare them a word at a time.
+ */
+public final class TagSet {
+    /**
+     * The set with no ids.
+     */
+    public static final TagSet EMPTY = new TagSet(new int[0], new long[0]);
+
+    private final int[] positions;
+    private final long[] words;
+    private final int hash;
+
+    private TagSet(int[] positions, long[] words) {
+        this.positions = positions;
+        this.words = words;
+        this.hash = 31 * Arrays.hashCode(positions) + Arrays.hashCode(words);
+    }
+
+    /**
+     * Creates a new set containing the ids given (duplicates are ignored).<br>
+     * Raises {@code NullPointerException} if ids is null.<br>
+     * Raises {@code IllegalArgumentException} if at least one of the ids is negative.
+     *
+     * @param ids The ids of the new set
+     * @return The set of the ids given
+     */
+    public static TagSet of(int... ids) {
+        return ofUnshared(ids.clone());
+    }
+
+    /*
+     * Sorts the ids given in place, so it is only for an array no one else holds (see TagDictionary.setOf).
+     * The positions are counted first, so that the words are stored in arrays of their exact length.
+     */
+    static TagSet ofUnshared(int[] ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(ids);
+        if (ids[0] < 0) {
+            throw new IllegalArgumentException("Ids must not be negative");
+        }
+        int count = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if ((ids[i] >>> 6) != (ids[i - 1] >>> 6)) {
+                count++;
+            }
+        }
+        int[] positions = new int[count];
+        long[] words = new long[count];
+        int index = 0;
+        positions[0] = ids[0] >>> 6;
+        for (int id : ids) {
+            if (positions[index] != id >>> 6) {
+                positions[++index] = id >>> 6;
+            }
+            words[index] |= 1L << id;
+        }
+        return new TagSet(positions, words);
+    }
+
+    /**
+     *
+     * @param id The id to look for
+     * @return  True - if the id is part of this set<br>
+     *          False - otherwise
+     */
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int i = Arrays.binarySearch(positions, id >>> 6);
+        return i >= 0 && (words[i] & (1L << id)) != 0;
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other set
+     * @return  True - if every id of this set is part of the other<br>
+     *          False - otherwise
+     */
+    public boolean isSubsetOf(TagSet other) {
+        if (positions.length > other.positions.length) {
+            return false;
+        }
+        int j = 0;
+        for (int i = 0; i < positions.length; i++) {
+            while (j < other.positions.length && other.positions[j] < positions[i]) {
+                j++;
+            }
+            if (j == other.positions.length || other.positions[j] != positions[i] || (words[i] & ~other.words[j]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other set
+     * @return  True - if every id of the other set is part of this<br>
+     *          False - otherwise
+     */
+    public boolean containsAll(TagSet other) {
+        return other.isSubsetOf(this);
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other set
+     * @return  True - if at least one id is part of both this and the other set<br>
+     *          False - otherwise
+     */
+    public boolean intersects(TagSet other) {
+        int i = 0;
+        int j = 0;
+        while (i < positions.length && j < other.positions.length) {
+            if (positions[i] < other.positions[j]) {
+                i++;
+            } else if (positions[i] > other.positions[j]) {
+                j++;
+            } else if ((words[i++] & other.words[j++]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other set
+     * @return The set of the ids part of this or of the other set
+     */
+    public TagSet union(TagSet other) {
+        if (other.isSubsetOf(this)) {
+            return this;
+        }
+        if (this.isSubsetOf(other)) {
+            return other;
+        }
+
+        int count = positions.length + other.positions.length;
+        for (int i = 0, j = 0; i < positions.length && j < other.positions.length; ) {
+            if (positions[i] < other.positions[j]) {
+                i++;
+            } else if (positions[i] > other.positions[j]) {
+                j++;
+            } else {
+                count--;
+                i++;
+                j++;
+            }
+        }
+        int[] resultPositions = new int[count];
+        long[] resultWords = new long[count];
+        int i = 0;
+        int j = 0;
+        count = 0;
+        while (i < positions.length || j < other.positions.length) {
+            if (j == other.positions.length || (i < positions.length && positions[i] < other.positions[j])) {
+                resultPositions[count] = positions[i];
+                resultWords[count++] = words[i++];
+            } else if (i == positions.length || positions[i] > other.positions[j]) {
+                resultPositions[count] = other.positions[j];
+                resultWords[count++] = other.words[j++];
+            } else {
+                resultPositions[count] = positions[i];
+                resultWords[count++] = words[i++] | other.words[j++];
+            }
+        }
+        return new TagSet(resultPositions, resultWords);
+    }
+
+    /**
+     *
+     * @return The number of ids in this set
+     */
+    public int size() {
+        int result = 0;
+        for (long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return  True - if this set has no ids<br>
+     *          False - otherwise
+     */
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    /**
+     *
+     * @return A new array with the ids of this set, in ascending order
+     */
+    public int[] toArray() {
+        int[] result = new int[size()];
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                result[count++] = (positions[i] << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TagSet tagSet = (TagSet) o;
+        return hash == tagSet.hash &&
+                Arrays.equals(positions, tagSet.positions) &&
+                Arrays.equals(words, tagSet.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,370 @@
+package persistence.image;
+
+import domain.Budget;
+import domain.Movement;
+import domain.Tag;
+import domain.Transaction;
+import domain.TransactionType;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes and reads binary images of a budget: its whole state at a given moment,<br>
+ * loaded at once instead of replaying its history.<br>
+ * <br>
+ * An image starts with a magic number and its format version (major and minor), followed by sections,<br>
+ * each one made of its id, its length and its content, and ends with the END section:<br>
+ *      -STRINGS: every distinct string of the budget (names and descriptions), each one stored once<br>
+ *      -TAGS: every distinct tag, as the positions of its name and description among the strings<br>
+ *      -BUDGET: name, description and opening balance<br>
+ *      -TRANSACTIONS: the transactions, in order, each one with its movements<br>
+ * Numbers are written as variable length integers (7 bits per byte), signed ones zig-zag encoded:<br>
+ * dates are the difference from the date of the previous transaction, times the difference from<br>
+ * the time of the previous movement of the same transaction, quantities are in minor units.<br>
+ * <br>
+ * A reader accepts every image with its same major version: sections it doesn't know, added by<br>
+ * a later minor version, are skipped thanks to their length.<br>
+ * <br>
+ * Reading an image builds the transactions and movements, and then indexes them all at once<br>
+ * (see {@code Budget.addTransactions}): most of the time of a read goes into these two steps, not into decoding.
+ */
+public final class BudgetImage {
+    /**
+     * The major version of the format written: images with a different one cannot be read.
+     */
+    public static final int MAJOR_VERSION = 1;
+
+    /**
+     * The minor version of the format written: later ones only add sections.
+     */
+    public static final int MINOR_VERSION = 0;
+
+    private static final int MAGIC = 0x42494D47;
+    private static final byte END = 0;
+    private static final byte STRINGS = 1;
+    private static final byte TAGS = 2;
+    private static final byte BUDGET = 3;
+    private static final byte TRANSACTIONS = 4;
+    private static final int NO_TYPE = 0;
+
+    private BudgetImage() {}
+
+    /**
+     * Writes the image of the budget given to a file, replacing it if it exists.<br>
+     * The image is written to a temporary file in the same directory, forced to the storage device, then moved<br>
+     * over the file atomically: a crash while writing leaves the previous image, if any, as it was.<br>
+     * Raises {@code NullPointerException} if budget or file are null.<br>
+     * Raises {@code IOException} if the file cannot be written.
+     *
+     * @param budget The budget to be written
+     * @param file The file of the image
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Budget budget, Path file) throws IOException {
+        if(budget == null || file == null){
+            throw new NullPointerException("Budget or file are null");
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        budget.iterator().forEachRemaining(transactions::add);
+
+        Map<String, Integer> strings = new HashMap<>();
+        Map<Tag, Integer> tags = new HashMap<>();
+        Output stringSection = new Output();
+        Output tagSection = new Output();
+        Output transactionSection = new Output();
+
+        transactionSection.writeVarLong(transactions.size());
+        long previousDate = 0;
+        for (Transaction transaction : transactions) {
+            transactionSection.writeVarLong(intern(strings, stringSection, transaction.getDescription()));
+            transactionSection.writeVarLong(zigZag(transaction.getDate().getTime() - previousDate));
+            previousDate = transaction.getDate().getTime();
+            transactionSection.writeVarLong(transaction.getTransactionType() == null ? NO_TYPE : transaction.getTransactionType().ordinal() + 1);
+            transactionSection.writeVarLong(transaction.size());
+            int previousSecond = 0;
+            Iterator<Movement> itMovs = transaction.iterator();
+            while (itMovs.hasNext()) {
+                Movement movement = itMovs.next();
+                transactionSection.writeVarLong(movement.getAmount().getMinorUnits());
+                transactionSection.writeVarLong(intern(strings, stringSection, movement.getDescription()));
+                transactionSection.writeVarLong(zigZag(movement.getTime().toSecondOfDay() - previousSecond));
+                previousSecond = movement.getTime().toSecondOfDay();
+                Collection<Tag> movementTags = movement.getTags();
+                transactionSection.writeVarLong(movementTags.size());
+                for (Tag tag : movementTags) {
+                    Integer index = tags.get(tag);
+                    if(index == null){
+                        index = tags.size();
+                        tags.put(tag, index);
+                        tagSection.writeVarLong(intern(strings, stringSection, tag.getName()));
+                        tagSection.writeVarLong(intern(strings, stringSection, tag.getDescription()));
+                    }
+                    transactionSection.writeVarLong(index);
+                }
+            }
+        }
+
+        Output budgetSection = new Output();
+        budgetSection.writeVarLong(intern(strings, stringSection, budget.getName()));
+        budgetSection.writeVarLong(intern(strings, stringSection, budget.getDescription()));
+        budgetSection.writeVarLong(zigZag(budget.getOpeningAmount().getMinorUnits()));
+
+        Output image = new Output();
+        image.writeInt(MAGIC);
+        image.writeVarLong(MAJOR_VERSION);
+        image.writeVarLong(MINOR_VERSION);
+        image.writeSection(STRINGS, strings.size(), stringSection);
+        image.writeSection(TAGS, tags.size(), tagSection);
+        image.writeSection(BUDGET, -1, budgetSection);
+        image.writeSection(TRANSACTIONS, -1, transactionSection);
+        image.writeByte(END);
+
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer content = ByteBuffer.wrap(image.bytes, 0, image.size);
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a budget from the image in the file given.<br>
+     * The file is mapped in memory and decoded in a single pass; the transactions are then<br>
+     * added to the new budget at once, so that its indexes are built in bulk.<br>
+     * Raises {@code NullPointerException} if file is null.<br>
+     * Raises {@code IOException} if the file cannot be read, or it is not a valid image.
+     *
+     * @param file The file of the image
+     * @return A new budget with the state held in the image
+     * @throws IOException If the file cannot be read, or it is not a valid image
+     */
+    public static Budget read(Path file) throws IOException {
+        if(file == null){
+            throw new NullPointerException("File is null");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(in);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("The image is corrupted", e);
+        }
+    }
+
+    private static Budget decode(ByteBuffer in) throws IOException {
+        if(in.remaining() < 4 || in.getInt() != MAGIC){
+            throw new IOException("The file is not a budget image");
+        }
+        if(readVarLong(in) != MAJOR_VERSION){
+            throw new IOException("Unsupported image format version");
+        }
+        readVarLong(in);
+
+        String[] strings = null;
+        Tag[] tags = null;
+        Budget budget = null;
+        List<Transaction> transactions = null;
+        byte section;
+        while ((section = in.get()) != END) {
+            int length = checkedInt(readVarLong(in));
+            ByteBuffer content = in.slice().limit(length);
+            in.position(in.position() + length);
+            switch (section) {
+                case STRINGS:
+                    strings = readStrings(content);
+                    break;
+                case TAGS:
+                    tags = readTags(content, require(strings));
+                    break;
+                case BUDGET:
+                    String[] names = require(strings);
+                    budget = new Budget(names[checkedInt(readVarLong(content))], names[checkedInt(readVarLong(content))],
+                            Money.ofMinorUnits(unZigZag(readVarLong(content))));
+                    break;
+                case TRANSACTIONS:
+                    transactions = readTransactions(content, require(strings), require(tags));
+                    break;
+                default:
+                    // A section added by a later minor version
+                    break;
+            }
+        }
+
+        require(budget).addTransactions(require(transactions));
+        return budget;
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        String[] result = new String[checkedInt(readVarLong(in))];
+        for (int i = 0; i < result.length; i++) {
+            byte[] bytes = new byte[checkedInt(readVarLong(in))];
+            in.get(bytes);
+            result[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    private static Tag[] readTags(ByteBuffer in, String[] strings) {
+        Tag[] result = new Tag[checkedInt(readVarLong(in))];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new Tag(strings[checkedInt(readVarLong(in))], strings[checkedInt(readVarLong(in))]);
+        }
+        return result;
+    }
+
+    private static List<Transaction> readTransactions(ByteBuffer in, String[] strings, Tag[] tags) {
+        TransactionType[] types = TransactionType.values();
+        int count = checkedInt(readVarLong(in));
+        List<Transaction> result = new ArrayList<>(count);
+        long date = 0;
+        for (int i = 0; i < count; i++) {
+            String description = strings[checkedInt(readVarLong(in))];
+            date += unZigZag(readVarLong(in));
+            int type = checkedInt(readVarLong(in));
+            Transaction transaction = new Transaction(description, new Date(date), type == NO_TYPE ? null : types[type - 1]);
+            int movements = checkedInt(readVarLong(in));
+            int second = 0;
+            for (int j = 0; j < movements; j++) {
+                Money quantity = Money.ofMinorUnits(readVarLong(in));
+                String movementDescription = strings[checkedInt(readVarLong(in))];
+                second += (int) unZigZag(readVarLong(in));
+                Tag[] movementTags = new Tag[checkedInt(readVarLong(in))];
+                for (int k = 0; k < movementTags.length; k++) {
+                    movementTags[k] = tags[checkedInt(readVarLong(in))];
+                }
+                transaction.addMovement(new Movement(quantity, movementDescription, Time.ofSecondOfDay(second), Arrays.asList(movementTags)));
+            }
+            result.add(transaction);
+        }
+        return result;
+    }
+
+    private static <T> T require(T value) throws IOException {
+        if(value == null){
+            throw new IOException("The image misses a section");
+        }
+        return value;
+    }
+
+    private static int intern(Map<String, Integer> strings, Output section, String value) {
+        Integer index = strings.get(value);
+        if(index == null){
+            index = strings.size();
+            strings.put(value, index);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            section.writeVarLong(bytes.length);
+            section.writeBytes(bytes, 0, bytes.length);
+        }
+        return index;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte current = in.get();
+            result |= (long) (current & 0x7F) << shift;
+            if(current >= 0){
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    private static int checkedInt(long value) {
+        if(value < 0 || value > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /*
+     * A growable array of bytes being written.
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        private void ensure(int more) {
+            if(size + more > bytes.length){
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] source, int from, int length) {
+            ensure(length);
+            System.arraycopy(source, from, bytes, size, length);
+            size += length;
+        }
+
+        /*
+         * Writes a section; a count, if not negative, is written before its content.
+         */
+        private void writeSection(byte id, int count, Output content) {
+            Output counter = new Output();
+            if(count >= 0){
+                counter.writeVarLong(count);
+            }
+            writeByte(id);
+            writeVarLong(counter.size + content.size);
+            writeBytes(counter.bytes, 0, counter.size);
+            writeBytes(content.bytes, 0, content.size);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package persistence.journal;
+
+import domain.Budget;
+import domain.BudgetListener;
+import domain.Movement;
+import domain.Transaction;
+import utilities.money.Money;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * This ADT represents an append-only journal of the modifications made to a budget,<br>
+ * from which the budget can be rebuilt after a restart.<br>
+ * <br>
+ * The file starts with a header (magic number and format version) followed by the records,<br>
+ * each one framed by its length and the CRC-32 of its content (see {@code Records}):<br>
+ * the first record describes the budget, the following ones its transactions added or removed<br>
+ * and the movements added to, or removed from, them. Transactions are identified by a number<br>
+ * given by the journal when they are added.<br>
+ * <br>
+ * Records are written to regions of the file mapped in memory and forced to the storage device<br>
+ * according to a {@code SyncPolicy}. A crash can leave the last records incomplete (torn):<br>
+ * when the journal is opened again, reading stops at the first record whose length or CRC<br>
+ * is not valid and the file is truncated there.<br>
+ * <br>
+ * A journal is attached to its budget as a listener: the budget must be modified only through<br>
+ * its own methods and those of its transactions, by one thread at a time (or be a {@code ConcurrentBudget}).<br>
+ * An {@code UncheckedIOException} raised while writing a record reaches the code modifying the budget,<br>
+ * after the modification has been made in memory.
+ */
+public final class Journal implements BudgetListener, AutoCloseable {
+    private static final int MAGIC = 0x424A524E;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final long DEFAULT_REGION_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final Budget budget;
+    private final SyncPolicy policy;
+    private final Map<Transaction, Long> ids;
+    private final CRC32 crc;
+    private final ScheduledExecutorService flusher;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+    private long nextId;
+    private int unsynced;
+    private boolean closed;
+
+    private Journal(FileChannel channel, Budget budget, SyncPolicy policy, long position,
+                    Map<Transaction, Long> ids, long nextId) {
+        this.channel = channel;
+        this.budget = budget;
+        this.policy = policy;
+        this.position = position;
+        this.ids = ids;
+        this.nextId = nextId;
+        this.crc = new CRC32();
+        if(policy.getMillis() > 0){
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flushQuietly, policy.getMillis(), policy.getMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Creates a new journal for the budget given, recording its current state, then attaches it to the budget.<br>
+     * Raises {@code NullPointerException} if file, budget or policy are null.<br>
+     * Raises {@code IOException} if the file already exists or cannot be written.
+     *
+     * @param file The file of the new journal
+     * @param budget The budget to be recorded
+     * @param policy How often the records are forced to the storage device
+     * @return The new journal, attached to the budget
+     * @throws IOException If the file already exists or cannot be written
+     */
+    public static Journal create(Path file, Budget budget, SyncPolicy policy) throws IOException {
+        if(file == null || budget == null || policy == null){
+            throw new NullPointerException("File, budget or policy are null");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Journal journal = new Journal(channel, budget, policy, FILE_HEADER, new IdentityHashMap<>(), 0);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(FORMAT_VERSION);
+            header.flip();
+            channel.write(header, 0);
+            journal.append(Records.budget(budget.getName(), budget.getDescription(), budget.getOpeningAmount()));
+            // The transactions are appended and the journal attached at once, so that no modification falls in between
+            budget.addListener(journal, true);
+            journal.flush();
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Opens an existing journal, rebuilding its budget by replaying the records, then attaches it<br>
+     * to the budget so that the following modifications are appended.<br>
+     * Torn records at the end of the file are discarded, truncating the file.<br>
+     * Raises {@code NullPointerException} if file or policy are null.<br>
+     * Raises {@code IOException} if the file cannot be read or written, or it is not a valid journal.
+     *
+     * @param file The file of the journal
+     * @param policy How often the records are forced to the storage device
+     * @return The journal, attached to the budget rebuilt (see {@code getBudget})
+     * @throws IOException If the file cannot be read or written, or it is not a valid journal
+     */
+    public static Journal open(Path file, SyncPolicy policy) throws IOException {
+        if(file == null || policy == null){
+            throw new NullPointerException("File or policy are null");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return replay(channel, policy);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Journal replay(FileChannel channel, SyncPolicy policy) throws IOException {
+        long size = channel.size();
+        if(size < FILE_HEADER){
+            throw new IOException("The file is not a budget journal");
+        }
+        MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if(content.getInt() != MAGIC){
+            throw new IOException("The file is not a budget journal");
+        }
+        if(content.getInt() != FORMAT_VERSION){
+            throw new IOException("Unsupported journal format version");
+        }
+
+        CRC32 crc = new CRC32();
+        Budget budget = null;
+        Map<Transaction, Long> ids = new IdentityHashMap<>();
+        Map<Long, Transaction> transactions = new HashMap<>();
+        long nextId = 0;
+        long end = FILE_HEADER;
+        while (content.remaining() >= RECORD_HEADER) {
+            int length = content.getInt();
+            int checksum = content.getInt();
+            if(length <= 0 || length > content.remaining()){
+                break;
+            }
+            ByteBuffer record = content.slice().limit(length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if((int) crc.getValue() != checksum){
+                break;
+            }
+            content.position(content.position() + length);
+
+            try {
+                byte kind = record.get();
+                if(budget == null && kind != Records.BUDGET){
+                    throw new IOException("The journal does not start with its budget");
+                }
+                switch (kind) {
+                    case Records.BUDGET:
+                        if(budget != null){
+                            throw new IOException("The journal describes more than one budget");
+                        }
+                        budget = new Budget(Records.readString(record), Records.readString(record), Money.ofMinorUnits(record.getLong()));
+                        break;
+                    case Records.ADD_TRANSACTION: {
+                        long id = record.getLong();
+                        Transaction transaction = Records.readTransaction(record);
+                        budget.addTransaction(transaction);
+                        ids.put(transaction, id);
+                        transactions.put(id, transaction);
+                        nextId = Math.max(nextId, id + 1);
+                        break;
+                    }
+                    case Records.REMOVE_TRANSACTION: {
+                        Transaction transaction = transactions.remove(record.getLong());
+                        budget.removeTransaction(known(transaction));
+                        ids.remove(transaction);
+                        break;
+                    }
+                    case Records.ADD_MOVEMENT:
+                        known(transactions.get(record.getLong())).addMovement(Records.readMovement(record));
+                        break;
+                    case Records.REMOVE_MOVEMENT: {
+                        Transaction transaction = known(transactions.get(record.getLong()));
+                        Movement removed = Records.readMovement(record);
+                        Movement found = null;
+                        Iterator<Movement> itMovs = transaction.iterator();
+                        while (itMovs.hasNext() && found == null) {
+                            Movement movement = itMovs.next();
+                            if(Records.sameContent(movement, removed)){
+                                found = movement;
+                            }
+                        }
+                        transaction.removeMovement(known(found));
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown record kind " + kind);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+                throw new IOException("Corrupted record at position " + end, e);
+            }
+            end = content.position();
+        }
+        if(budget == null){
+            throw new IOException("The journal does not describe any budget");
+        }
+
+        if(end < size){
+            channel.truncate(end);
+        }
+        Journal journal = new Journal(channel, budget, policy, end, ids, nextId);
+        budget.addListener(journal);
+        return journal;
+    }
+
+    private static <T> T known(T value) throws IOException {
+        if(value == null){
+            throw new IOException("The journal refers to a transaction or movement not recorded");
+        }
+        return value;
+    }
+
+    /**
+     *
+     * @return The budget recorded by this journal
+     */
+    public Budget getBudget() {
+        return budget;
+    }
+
+    /**
+     *
+     * @return The size, in bytes, of the records written so far (including the header of the file)
+     */
+    public synchronized long size() {
+        return position;
+    }
+
+    @Override
+    public synchronized void transactionAdded(Budget budget, Transaction transaction) {
+        long id = nextId++;
+        ids.put(transaction, id);
+        append(Records.addTransaction(id, transaction));
+    }
+
+    @Override
+    public synchronized void transactionRemoved(Budget budget, Transaction transaction) {
+        Long id = ids.remove(transaction);
+        if(id != null){
+            append(Records.removeTransaction(id));
+        }
+    }
+
+    @Override
+    public synchronized void movementAdded(Budget budget, Transaction transaction, Movement movement) {
+        Long id = ids.get(transaction);
+        if(id != null){
+            append(Records.movement(Records.ADD_MOVEMENT, id, movement));
+        }
+    }
+
+    @Override
+    public synchronized void movementRemoved(Budget budget, Transaction transaction, Movement movement) {
+        Long id = ids.get(transaction);
+        if(id != null){
+            append(Records.movement(Records.REMOVE_MOVEMENT, id, movement));
+        }
+    }
+
+    /**
+     * Forces every record written so far to the storage device.<br>
+     * Raises {@code IllegalStateException} if this journal is closed.
+     */
+    public synchronized void flush() {
+        checkOpen();
+        if(region != null && unsynced > 0){
+            region.force();
+        }
+        unsynced = 0;
+    }
+
+    /**
+     * Forces the records written, detaches this journal from its budget and closes its file,<br>
+     * trimming the part of the last region mapped not used by records. Closing it again has no effect.<br>
+     * Raises {@code UncheckedIOException} if the file cannot be closed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if(closed){
+                return;
+            }
+            if(region != null){
+                region.force();
+            }
+            closed = true;
+        }
+        budget.removeListener(this);
+        if(flusher != null){
+            flusher.shutdown();
+        }
+        synchronized (this) {
+            region = null;
+            try {
+                if(channel.size() > position){
+                    channel.truncate(position);
+                }
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void append(byte[] record) {
+        checkOpen();
+        try {
+            int needed = RECORD_HEADER + record.length;
+            if(region == null || position + needed > regionStart + region.capacity()){
+                if(region != null){
+                    region.force();
+                }
+                regionStart = position;
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(DEFAULT_REGION_SIZE, needed));
+            }
+
+            crc.reset();
+            crc.update(record);
+            int offset = (int) (position - regionStart);
+            region.putInt(offset + 4, (int) crc.getValue());
+            region.put(offset + RECORD_HEADER, record);
+            // The length goes last: until it is written, the record reads as the end of the journal
+            region.putInt(offset, record.length);
+            position += needed;
+            unsynced++;
+
+            if(policy.getRecords() > 0 && unsynced >= policy.getRecords()){
+                region.force();
+                unsynced = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void flushQuietly() {
+        if(!closed){
+            flush();
+        }
+    }
+
+    private void checkOpen() {
+        if(closed){
+            throw new IllegalStateException("The journal is closed");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package persistence.journal;
+
+import domain.Movement;
+import domain.Tag;
+import domain.Transaction;
+import domain.TransactionType;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class groups the encoding of the records of a journal.<br>
+ * Every record starts with its kind, followed by its fields:<br>
+ *      -BUDGET: name, description, opening balance<br>
+ *      -ADD_TRANSACTION: id, description, date, type, number of movements, movements<br>
+ *      -REMOVE_TRANSACTION: id<br>
+ *      -ADD_MOVEMENT, REMOVE_MOVEMENT: id of the transaction, movement<br>
+ * where a movement is its quantity (in minor units), description, second of the day,<br>
+ * number of tags and tags (name and description); strings are in UTF-8 preceded by their length.
+ */
+final class Records {
+    static final byte BUDGET = 1;
+    static final byte ADD_TRANSACTION = 2;
+    static final byte REMOVE_TRANSACTION = 3;
+    static final byte ADD_MOVEMENT = 4;
+    static final byte REMOVE_MOVEMENT = 5;
+
+    private static final byte NO_TYPE = -1;
+
+    private Records() {}
+
+    static byte[] budget(String name, String description, Money openingBalance) {
+        return encode(out -> {
+            out.writeByte(BUDGET);
+            writeString(out, name);
+            writeString(out, description);
+            out.writeLong(openingBalance.getMinorUnits());
+        });
+    }
+
+    static byte[] addTransaction(long id, Transaction transaction) {
+        return encode(out -> {
+            out.writeByte(ADD_TRANSACTION);
+            out.writeLong(id);
+            writeString(out, transaction.getDescription());
+            out.writeLong(transaction.getDate().getTime());
+            out.writeByte(transaction.getTransactionType() == null ? NO_TYPE : transaction.getTransactionType().ordinal());
+            List<Movement> movements = new ArrayList<>();
+            transaction.iterator().forEachRemaining(movements::add);
+            out.writeInt(movements.size());
+            for (Movement movement : movements) {
+                writeMovement(out, movement);
+            }
+        });
+    }
+
+    static byte[] removeTransaction(long id) {
+        return encode(out -> {
+            out.writeByte(REMOVE_TRANSACTION);
+            out.writeLong(id);
+        });
+    }
+
+    static byte[] movement(byte kind, long id, Movement movement) {
+        return encode(out -> {
+            out.writeByte(kind);
+            out.writeLong(id);
+            writeMovement(out, movement);
+        });
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[checkLength(in, in.getInt())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Transaction readTransaction(ByteBuffer in) {
+        String description = readString(in);
+        Date date = new Date(in.getLong());
+        byte type = in.get();
+        Transaction transaction = new Transaction(description, date, type == NO_TYPE ? null : TransactionType.values()[type]);
+        int movements = checkLength(in, in.getInt());
+        for (int i = 0; i < movements; i++) {
+            transaction.addMovement(readMovement(in));
+        }
+        return transaction;
+    }
+
+    static Movement readMovement(ByteBuffer in) {
+        Money quantity = Money.ofMinorUnits(in.getLong());
+        String description = readString(in);
+        Time time = Time.ofSecondOfDay(in.getInt());
+        int count = checkLength(in, in.getInt());
+        Collection<Tag> tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tags.add(new Tag(readString(in), readString(in)));
+        }
+        return new Movement(quantity, description, time, tags);
+    }
+
+    /**
+     *
+     * @return  True - if the two movements have the same quantity, description, time and tags<br>
+     *          False - otherwise
+     */
+    static boolean sameContent(Movement first, Movement second) {
+        return first.getAmount().equals(second.getAmount()) &&
+                first.getDescription().equals(second.getDescription()) &&
+                first.getTime().equals(second.getTime()) &&
+                first.getTags().equals(second.getTags());
+    }
+
+    private static void writeMovement(DataOutputStream out, Movement movement) throws IOException {
+        out.writeLong(movement.getAmount().getMinorUnits());
+        writeString(out, movement.getDescription());
+        out.writeInt(movement.getTime().toSecondOfDay());
+        Collection<Tag> tags = movement.getTags();
+        out.writeInt(tags.size());
+        for (Tag tag : tags) {
+            writeString(out, tag.getName());
+            writeString(out, tag.getDescription());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // A length read from a record can't be larger than what is left of it
+    private static int checkLength(ByteBuffer in, int length) {
+        if(length < 0 || length > in.remaining()){
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static byte[] encode(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encoder.encode(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Encoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,68 @@
+package persistence.journal;
+
+/**
+ * This ADT represents how often a journal forces the records written to the storage device.<br>
+ * Records are always written to the file mapped in memory at once, but they survive a crash<br>
+ * of the system only once forced; forcing many records together (group commit) costs<br>
+ * far less than forcing each one. A policy forces:<br>
+ *      -Every time a given number of records has been written since the last time<br>
+ *      -Every given number of milliseconds, if some record has been written meanwhile<br>
+ *      -Anyway, when the journal is flushed or closed
+ */
+public final class SyncPolicy {
+    private final int records;
+    private final long millis;
+
+    private SyncPolicy(int records, long millis) {
+        this.records = records;
+        this.millis = millis;
+    }
+
+    /**
+     *
+     * @return The policy forcing every record as soon as it is written
+     */
+    public static SyncPolicy everyRecord() {
+        return new SyncPolicy(1, 0);
+    }
+
+    /**
+     * Gives the policy forcing the records written in batches.<br>
+     * Raises {@code IllegalArgumentException} if records or millis are negative, or both zero.
+     *
+     * @param records The number of records after which they are forced (0 for no limit)
+     * @param millis The maximum number of milliseconds a record waits to be forced (0 for no limit)
+     * @return The policy forcing the records in batches
+     */
+    public static SyncPolicy batched(int records, long millis) {
+        if(records < 0 || millis < 0 || (records == 0 && millis == 0)){
+            throw new IllegalArgumentException("Records and milliseconds must not be negative, nor both zero");
+        }
+
+        return new SyncPolicy(records, millis);
+    }
+
+    /**
+     *
+     * @return The policy forcing the records only when the journal is flushed or closed
+     */
+    public static SyncPolicy manual() {
+        return new SyncPolicy(0, 0);
+    }
+
+    /**
+     *
+     * @return The number of records after which they are forced, 0 if there is no limit
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     *
+     * @return The maximum number of milliseconds a record waits to be forced, 0 if there is no limit
+     */
+    public long getMillis() {
+        return millis;
+    }
+}
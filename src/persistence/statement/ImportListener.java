@@ -0,0 +1,15 @@
+package persistence.statement;
+
+/**
+ * This abstraction represents an observer of the progress of an import (see {@code StatementImporter}).<br>
+ * It is called by the thread running the import, after each batch of movements has been added to the budget.
+ */
+public interface ImportListener {
+
+    /**
+     * Called after a batch of movements has been added to the budget.
+     *
+     * @param progress The progress of the import so far
+     */
+    void progress(ImportProgress progress);
+}
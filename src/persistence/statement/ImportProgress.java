@@ -0,0 +1,130 @@
+package persistence.statement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This ADT represents the progress of an import at a given moment, or its outcome once finished:<br>
+ *      -How many bytes of the statement have been read, out of its size<br>
+ *      -How many lines have been read, and how many of them have been rejected<br>
+ *      -How many movements and transactions have been added to the budget<br>
+ *      -How much time has elapsed since the import started<br>
+ *      -The errors found in the lines rejected (only the first ones are kept)
+ */
+public final class ImportProgress {
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long lines;
+    private final long rejected;
+    private final long movements;
+    private final long transactions;
+    private final long elapsedNanos;
+    private final List<String> errors;
+
+    ImportProgress(long bytesRead, long totalBytes, long lines, long rejected, long movements,
+                   long transactions, long elapsedNanos, List<String> errors) {
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.lines = lines;
+        this.rejected = rejected;
+        this.movements = movements;
+        this.transactions = transactions;
+        this.elapsedNanos = elapsedNanos;
+        this.errors = errors;
+    }
+
+    /**
+     *
+     * @return The number of bytes of the statement read so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     *
+     * @return The size, in bytes, of the statement
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     *
+     * @return The fraction (between 0 and 1) of the statement read so far
+     */
+    public double getFraction() {
+        return totalBytes == 0 ? 1 : (double) bytesRead / totalBytes;
+    }
+
+    /**
+     *
+     * @return The number of lines of the statement processed so far (excluding the header)
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     *
+     * @return The number of lines rejected so far, because not valid
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     *
+     * @return The number of movements added to the budget so far
+     */
+    public long getMovements() {
+        return movements;
+    }
+
+    /**
+     *
+     * @return The number of transactions added to the budget so far
+     */
+    public long getTransactions() {
+        return transactions;
+    }
+
+    /**
+     *
+     * @return The number of milliseconds elapsed since the import started
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     *
+     * @return The number of lines processed per second, on average, so far
+     */
+    public double getLinesPerSecond() {
+        return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+    }
+
+    /**
+     *
+     * @return The number of bytes read per second, on average, so far
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesRead * 1e9 / elapsedNanos;
+    }
+
+    /**
+     *
+     * @return A new list with the errors found in the first lines rejected, each one with its line number
+     */
+    public List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d bytes, %d lines (%d rejected), %d movements in %d transactions, %d ms, %.0f lines/s",
+                bytesRead, totalBytes, lines, rejected, movements, transactions, getElapsedMillis(), getLinesPerSecond());
+    }
+}
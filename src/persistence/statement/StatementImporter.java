@@ -0,0 +1,434 @@
+package persistence.statement;
+
+import domain.Budget;
+import domain.Movement;
+import domain.Tag;
+import domain.Transaction;
+import domain.TransactionType;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class imports bank statements into budgets (see {@code StatementParser} for the format of a statement).<br>
+ * <br>
+ * An import is a pipeline of three stages, working at once:<br>
+ *      -A reader thread reads the statement in chunks of whole lines<br>
+ *      -A pool of parser threads turns each chunk into movements<br>
+ *      -The thread calling {@code importStatement} groups the movements, in the order of the statement, into one<br>
+ *       transaction for each date and type, then adds them to the budget in batches<br>
+ * The chunks being parsed, or waiting to be added, are bounded by the capacity of the queue between the stages:<br>
+ * when the budget falls behind the reader waits, so the memory used doesn't depend on the size of the statement.<br>
+ * <br>
+ * The lines that are not valid are rejected, without stopping the import, and the first ones are reported.<br>
+ * A line longer than 64 MiB stops the import instead.
+ */
+public class StatementImporter {
+    private static final int MAX_ERRORS = 100;
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+
+    private final int parsers;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final boolean header;
+    private final ZoneId zone;
+    private final Tag defaultTag;
+    private final ImportListener listener;
+
+    private StatementImporter(StatementImporterBuilder builder) {
+        this.parsers = builder.parsers;
+        this.chunkSize = builder.chunkSize;
+        this.queueCapacity = builder.queueCapacity > 0 ? builder.queueCapacity : 2 * builder.parsers;
+        this.batchSize = builder.batchSize;
+        this.header = builder.header;
+        this.zone = builder.zone;
+        this.defaultTag = builder.defaultTag;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * Imports a statement into a budget.<br>
+     * MODIFY If no exception is thrown:<br>
+     *          -Adding to the budget a new transaction for each date and type found in the statement,<br>
+     *           with the movements of that date and type, in the order of the statement<br>
+     * <br>
+     * The budget is modified only by the calling thread; the listener, if any, is notified by it too.<br>
+     * Raises {@code NullPointerException} if statement or budget are null.<br>
+     * Raises {@code IOException} if the statement cannot be read, or has a line longer than 64 MiB,<br>
+     * or the calling thread is interrupted: the transactions already added are left in the budget.
+     *
+     * @param statement The path of the statement to be imported
+     * @param budget The budget the statement is imported into
+     * @return The outcome of the import
+     * @throws IOException If the statement cannot be read
+     */
+    public ImportProgress importStatement(Path statement, Budget budget) throws IOException {
+        if(statement == null || budget == null){
+            throw new NullPointerException("Statement or budget are null");
+        }
+
+        StatementParser parser = new StatementParser(zone, defaultTag);
+        BlockingQueue<Future<StatementParser.Chunk>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parsers, task -> {
+            Thread thread = new Thread(task, "statement-parser-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (FileChannel channel = FileChannel.open(statement, StandardOpenOption.READ)) {
+            long totalBytes = channel.size();
+            Thread reader = new Thread(() -> read(channel, parser, pool, queue), "statement-reader");
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                return insert(queue, budget, totalBytes);
+            } finally {
+                // The reader may be waiting for room in the queue, which won't be drained anymore
+                reader.interrupt();
+                join(reader);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     * The reader stage: splits the statement into chunks of whole lines, each one parsed by the pool,
+     * queueing them in order. The queue ends with a null chunk, or with whatever stopped the reader,
+     * so that the insertion stage never waits for a chunk that won't come.
+     */
+    private void read(FileChannel channel, StatementParser parser, ExecutorService pool,
+                      BlockingQueue<Future<StatementParser.Chunk>> queue) {
+        try {
+            Future<StatementParser.Chunk> last;
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+                boolean first = true;
+                while (channel.read(buffer) >= 0) {
+                    if(buffer.hasRemaining()){
+                        continue;
+                    }
+                    int end = lastLineEnd(buffer);
+                    if(end < 0){
+                        // A line longer than a chunk: the chunk grows until it holds it
+                        if(buffer.capacity() >= MAX_CHUNK_SIZE){
+                            throw new IOException("A line is longer than " + MAX_CHUNK_SIZE + " bytes");
+                        }
+                        int grown = (int) Math.min(2L * buffer.capacity(), MAX_CHUNK_SIZE);
+                        buffer = ByteBuffer.allocate(grown).put(buffer.flip());
+                        continue;
+                    }
+                    queue.put(parse(parser, pool, Arrays.copyOf(buffer.array(), end), first));
+                    first = false;
+                    buffer.flip().position(end);
+                    buffer.compact();
+                }
+                if(buffer.position() > 0){
+                    queue.put(parse(parser, pool, Arrays.copyOf(buffer.array(), buffer.position()), first));
+                }
+                last = CompletableFuture.completedFuture(null);
+            } catch (InterruptedException e) {
+                // The import has been stopped
+                return;
+            } catch (Throwable e) {
+                last = CompletableFuture.failedFuture(e);
+            }
+            queue.put(last);
+        } catch (InterruptedException e) {
+            // The import has been stopped
+        }
+    }
+
+    private Future<StatementParser.Chunk> parse(StatementParser parser, ExecutorService pool, byte[] bytes, boolean first) {
+        boolean skip = first && header;
+        return CompletableFuture.supplyAsync(() -> parser.parse(bytes, skip, MAX_ERRORS), pool);
+    }
+
+    /*
+     * The insertion stage: groups the movements of the chunks, taken in order, into transactions,
+     * adding the new ones to the budget every batch of movements.
+     */
+    private ImportProgress insert(BlockingQueue<Future<StatementParser.Chunk>> queue, Budget budget, long totalBytes)
+            throws IOException {
+        long begin = System.nanoTime();
+        // One transaction for each type and date, whatever the number of types
+        Map<TransactionType, Map<Long, Transaction>> transactions = new EnumMap<>(TransactionType.class);
+        List<Transaction> pending = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        long bytesRead = 0;
+        long lines = 0;
+        long rejected = 0;
+        long movements = 0;
+        int batched = 0;
+
+        StatementParser.Chunk chunk;
+        while ((chunk = next(queue)) != null) {
+            for (int i = 0; i < chunk.movements.size(); i++) {
+                long date = chunk.dates.get(i);
+                TransactionType type = chunk.types.get(i);
+                Map<Long, Transaction> ofType = transactions.computeIfAbsent(type, key -> new HashMap<>());
+                Transaction transaction = ofType.get(date);
+                if(transaction == null){
+                    transaction = new Transaction(describe(date, type), new Date(date), type);
+                    ofType.put(date, transaction);
+                    pending.add(transaction);
+                }
+                transaction.addMovement(chunk.movements.get(i));
+            }
+
+            long firstLine = lines + (header ? 1 : 0);
+            for (int i = 0; i < chunk.errors.size() && errors.size() < MAX_ERRORS; i++) {
+                errors.add("Line " + (firstLine + chunk.errorLines.get(i)) + ": " + chunk.errors.get(i));
+            }
+            bytesRead += chunk.bytes;
+            lines += chunk.lines;
+            rejected += chunk.rejected;
+            movements += chunk.movements.size();
+            batched += chunk.movements.size();
+
+            if(batched >= batchSize){
+                budget.addTransactions(pending);
+                pending.clear();
+                batched = 0;
+                if(listener != null){
+                    listener.progress(new ImportProgress(bytesRead, totalBytes, lines, rejected, movements,
+                            transactions.size(), System.nanoTime() - begin, errors));
+                }
+            }
+        }
+        budget.addTransactions(pending);
+
+        ImportProgress outcome = new ImportProgress(bytesRead, totalBytes, lines, rejected, movements,
+                transactions.size(), System.nanoTime() - begin, errors);
+        if(listener != null){
+            listener.progress(outcome);
+        }
+        return outcome;
+    }
+
+    private static StatementParser.Chunk next(BlockingQueue<Future<StatementParser.Chunk>> queue) throws IOException {
+        try {
+            return queue.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The import has been interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error){
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private String describe(long date, TransactionType type) {
+        return "Statement " + Instant.ofEpochMilli(date).atZone(zone).toLocalDate() + " " + type.name().toLowerCase();
+    }
+
+    // The position just after the last line feed in the buffer, or -1 if there is none
+    private static int lastLineEnd(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = buffer.position() - 1; i >= 0; i--) {
+            if(bytes[i] == '\n'){
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builder for a statement importer
+     */
+    public static class StatementImporterBuilder {
+        private int parsers = Runtime.getRuntime().availableProcessors();
+        private int chunkSize = 1 << 20;
+        private int queueCapacity = 0;
+        private int batchSize = 10_000;
+        private boolean header = true;
+        private ZoneId zone = ZoneId.systemDefault();
+        private Tag defaultTag = new Tag("imported", "Imported from a statement");
+        private ImportListener listener = null;
+
+        /**
+         * Creates a new statement importer builder.
+         */
+        public StatementImporterBuilder(){}
+
+        /**
+         * Sets the number of threads parsing the statement (by default, the number of processors available).<br>
+         * Raises {@code IllegalArgumentException} if parsers is zero or negative.
+         *
+         * @param parsers The number of threads parsing the statement
+         * @return This builder but with the number of parsers that has been set
+         */
+        public StatementImporterBuilder withParsers(int parsers){
+            if(parsers <= 0){
+                throw new IllegalArgumentException("The number of parsers must be positive");
+            }
+
+            this.parsers = parsers;
+            return this;
+        }
+
+        /**
+         * Sets the size, in bytes, of the chunks the statement is read in (by default, 1 MiB).<br>
+         * A chunk longer than that is used only for a line that doesn't fit in it, up to 64 MiB.<br>
+         * Raises {@code IllegalArgumentException} if chunkSize is zero or negative, or larger than 64 MiB.
+         *
+         * @param chunkSize The size of the chunks
+         * @return This builder but with the size of the chunks that has been set
+         */
+        public StatementImporterBuilder withChunkSize(int chunkSize){
+            if(chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE){
+                throw new IllegalArgumentException("The size of the chunks must be positive and at most " + MAX_CHUNK_SIZE);
+            }
+
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Sets how many chunks can be read ahead of the budget (by default, twice the number of parsers).<br>
+         * Raises {@code IllegalArgumentException} if queueCapacity is zero or negative.
+         *
+         * @param queueCapacity The maximum number of chunks being parsed or waiting to be added
+         * @return This builder but with the capacity of the queue that has been set
+         */
+        public StatementImporterBuilder withQueueCapacity(int queueCapacity){
+            if(queueCapacity <= 0){
+                throw new IllegalArgumentException("The capacity of the queue must be positive");
+            }
+
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets how many movements, at least, are added to the budget at a time (by default, 10000).<br>
+         * Raises {@code IllegalArgumentException} if batchSize is zero or negative.
+         *
+         * @param batchSize The minimum number of movements of a batch
+         * @return This builder but with the size of the batches that has been set
+         */
+        public StatementImporterBuilder withBatchSize(int batchSize){
+            if(batchSize <= 0){
+                throw new IllegalArgumentException("The size of the batches must be positive");
+            }
+
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the first line of a statement is a header, to be skipped (by default, true).
+         *
+         * @param header True - if the first line is a header<br>
+         *               False - otherwise
+         * @return This builder but with the presence of the header that has been set
+         */
+        public StatementImporterBuilder withHeader(boolean header){
+            this.header = header;
+            return this;
+        }
+
+        /**
+         * Sets the time zone the dates of a statement are in (by default, the one of the system).<br>
+         * Raises {@code NullPointerException} if zone is null.
+         *
+         * @param zone The time zone of the dates
+         * @return This builder but with the time zone that has been set
+         */
+        public StatementImporterBuilder withZone(ZoneId zone){
+            if(zone == null){
+                throw new NullPointerException("Zone is null");
+            }
+
+            this.zone = zone;
+            return this;
+        }
+
+        /**
+         * Sets the tag given to the movements without tags (by default, "imported").<br>
+         * Raises {@code NullPointerException} if tag is null.
+         *
+         * @param tag The tag given to the movements without tags
+         * @return This builder but with the default tag that has been set
+         */
+        public StatementImporterBuilder withDefaultTag(Tag tag){
+            if(tag == null){
+                throw new NullPointerException("Tag is null");
+            }
+
+            this.defaultTag = tag;
+            return this;
+        }
+
+        /**
+         * Sets the listener notified of the progress of an import, after each batch.<br>
+         * Raises {@code NullPointerException} if listener is null.
+         *
+         * @param listener The listener to be notified
+         * @return This builder but with the listener that has been set
+         */
+        public StatementImporterBuilder withListener(ImportListener listener){
+            if(listener == null){
+                throw new NullPointerException("Listener is null");
+            }
+
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Builds a new statement importer.
+         *
+         * @return A new statement importer, with the settings of this builder
+         */
+        public StatementImporter build(){
+            return new StatementImporter(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package persistence.statement;
+
+import domain.Movement;
+import domain.Tag;
+import domain.TransactionType;
+import utilities.money.Money;
+import utilities.time.Time;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class parses the lines of a statement, one chunk of whole lines at a time.<br>
+ * Every line describes a movement, with the fields separated by commas:<br>
+ *      date (yyyy-MM-dd), time (HH:mm:ss), type (CREDIT or DEBIT), amount (up to cents, with a dot),<br>
+ *      description, tags (name:description separated by |, optional)<br>
+ * A field can be enclosed in double quotes, doubling the ones it contains, to hold commas.<br>
+ * A movement without tags is given the default tag. Empty lines are ignored.<br>
+ * It is stateless, so chunks can be parsed by many threads at once.
+ */
+final class StatementParser {
+    private static final int FIELDS = 6;
+
+    private final ZoneId zone;
+    private final Tag defaultTag;
+
+    StatementParser(ZoneId zone, Tag defaultTag) {
+        this.zone = zone;
+        this.defaultTag = defaultTag;
+    }
+
+    /**
+     * Parses a chunk of whole lines.
+     *
+     * @param bytes The chunk, in UTF-8
+     * @param skipFirst Whether the first line of the chunk is a header to be skipped
+     * @param maxErrors The maximum number of errors to be kept
+     * @return The movements parsed, along with the lines rejected
+     */
+    Chunk parse(byte[] bytes, boolean skipFirst, int maxErrors) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        Chunk chunk = new Chunk(bytes.length);
+        Map<String, Long> dates = new HashMap<>();
+        List<String> fields = new ArrayList<>(FIELDS);
+
+        int start = 0;
+        boolean first = true;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if(end < 0){
+                end = text.length();
+            }
+            int last = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            String line = text.substring(start, last);
+            start = end + 1;
+
+            if(first && skipFirst){
+                first = false;
+                continue;
+            }
+            first = false;
+            chunk.lines++;
+            if(line.isBlank()){
+                continue;
+            }
+
+            try {
+                split(line, fields);
+                if(fields.size() < FIELDS - 1 || fields.size() > FIELDS){
+                    throw new IllegalArgumentException("Expected " + FIELDS + " fields, found " + fields.size());
+                }
+                Long date = dates.computeIfAbsent(fields.get(0), this::parseDate);
+                Time time = parseTime(fields.get(1));
+                TransactionType type = parseType(fields.get(2));
+                Money amount = Money.ofMinorUnits(parseAmount(fields.get(3)));
+                Collection<Tag> tags = fields.size() == FIELDS ? parseTags(fields.get(5)) : Collections.emptyList();
+                Movement movement = new Movement(amount, fields.get(4), time,
+                        tags.isEmpty() ? Collections.singletonList(defaultTag) : tags);
+                chunk.add(date, type, movement);
+            } catch (RuntimeException e) {
+                chunk.reject(maxErrors, e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private long parseDate(String field) {
+        return LocalDate.parse(field.trim()).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static Time parseTime(String field) {
+        String time = field.trim();
+        if(time.length() != 8 || time.charAt(2) != ':' || time.charAt(5) != ':'){
+            throw new IllegalArgumentException("Time must be in the form HH:mm:ss: " + field);
+        }
+        return Time.of((int) digits(time, 0, 2), (int) digits(time, 3, 5), (int) digits(time, 6, 8));
+    }
+
+    private static TransactionType parseType(String field) {
+        try {
+            return TransactionType.valueOf(field.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown type: " + field);
+        }
+    }
+
+    /*
+     * Parses the amount straight into cents, avoiding the rounding of a double.
+     */
+    private static long parseAmount(String field) {
+        String amount = field.trim();
+        int dot = amount.indexOf('.');
+        int integer = dot < 0 ? amount.length() : dot;
+        int decimals = dot < 0 ? 0 : amount.length() - dot - 1;
+        if(integer == 0 || integer > 16 || decimals > 2 || (dot >= 0 && decimals == 0)){
+            throw new IllegalArgumentException("Amount must be a positive number up to cents: " + field);
+        }
+
+        long cents = digits(amount, 0, integer) * 100L;
+        if(decimals > 0){
+            cents += digits(amount, dot + 1, amount.length()) * (decimals == 1 ? 10 : 1);
+        }
+        return cents;
+    }
+
+    private static Collection<Tag> parseTags(String field) {
+        List<Tag> tags = new ArrayList<>();
+        for (String tag : field.split("\\|")) {
+            String trimmed = tag.trim();
+            if(trimmed.isEmpty()){
+                continue;
+            }
+            int colon = trimmed.indexOf(':');
+            String name = colon < 0 ? trimmed : trimmed.substring(0, colon).trim();
+            String description = colon < 0 ? trimmed : trimmed.substring(colon + 1).trim();
+            Tag parsed = new Tag(name, description);
+            if(!tags.contains(parsed)){
+                tags.add(parsed);
+            }
+        }
+        return tags;
+    }
+
+    private static long digits(String text, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if(c < '0' || c > '9'){
+                throw new IllegalArgumentException("Not a number: " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /*
+     * Splits a line into its fields, honoring double quotes.
+     */
+    private static void split(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(quoted){
+                if(c != '"'){
+                    field.append(c);
+                } else if(i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if(c == '"'){
+                quoted = true;
+            } else if(c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if(quoted){
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+    }
+
+    /**
+     * The outcome of parsing a chunk: the movements, each one with the date and the type of its transaction,<br>
+     * and the lines rejected, numbered from the first line of the chunk (header excluded).
+     */
+    static final class Chunk {
+        final int bytes;
+        final List<Movement> movements;
+        final List<Long> dates;
+        final List<TransactionType> types;
+        final List<Integer> errorLines;
+        final List<String> errors;
+        int lines;
+        int rejected;
+
+        Chunk(int bytes) {
+            this.bytes = bytes;
+            this.movements = new ArrayList<>();
+            this.dates = new ArrayList<>();
+            this.types = new ArrayList<>();
+            this.errorLines = new ArrayList<>();
+            this.errors = new ArrayList<>();
+        }
+
+        private void add(long date, TransactionType type, Movement movement) {
+            movements.add(movement);
+            dates.add(date);
+            types.add(type);
+        }
+
+        private void reject(int maxErrors, String message) {
+            rejected++;
+            if(errors.size() < maxErrors){
+                errorLines.add(lines);
+                errors.add(message);
+            }
+        }
+    }
+}
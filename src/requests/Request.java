@@ -2,6 +2,9 @@ package requests;
 
 import requests.applicable.Requestable;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * This interface specifies an abstraction on a any-type request.<br>
  * Abstractly a request can be seen as:
@@ -24,6 +27,28 @@ public interface Request {
      */
     boolean doesItMatch(Requestable toTest, RequestMode mode);
 
+    /**
+     * Evaluate which of the objects passed, that must be suitable, match this request.<br>
+     * It gives the same results of {@code doesItMatch} called on each object, implementations<br>
+     * can however evaluate the whole batch at once.<br>
+     * Raises {@code NullPointerException} if toTest is null or contains null.<br>
+     * Raises {@code IllegalArgumentException} if at least one of the objects is not suitable for this request.
+     *
+     * @param toTest The objects whose matching, with this request, has to be verified
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return A new bitset whose set bits are the indexes, in toTest, of the objects matching this request
+     */
+    default BitSet whichMatch(List<? extends Requestable> toTest, RequestMode mode) {
+        BitSet result = new BitSet(toTest.size());
+        int index = 0;
+        for (Requestable requestable : toTest) {
+            if(doesItMatch(requestable, mode))
+                result.set(index);
+            index++;
+        }
+        return result;
+    }
+
     /**
      * Tests if the type of the object given, is suitable to be handled by this request.<br>
      * Raises {@code NullPointerException} if toTest is null.
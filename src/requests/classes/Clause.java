@@ -0,0 +1,70 @@
+package requests.classes;
+
+import requests.applicable.Requestable;
+
+import java.util.function.Predicate;
+
+/**
+ * This ADT represents one of the parameters set in a request, ready to be tested:<br>
+ *      -The parameter, identified by a value of the enumerator of the request' parameters<br>
+ *      -The predicate that tests if a suitable object matches that parameter
+ */
+public final class Clause {
+    private final Enum<?> parameter;
+    private final Predicate<Requestable> tester;
+
+    /**
+     * Creates a new clause given its parameter and its tester.<br>
+     * Raises {@code NullPointerException} if parameter or tester are null.
+     *
+     * @param parameter The parameter this clause tests
+     * @param tester The predicate testing an object suitable for the request
+     */
+    public Clause(Enum<?> parameter, Predicate<Requestable> tester) {
+        if(parameter == null || tester == null){
+            throw new NullPointerException("Parameter or tester are null");
+        }
+
+        this.parameter = parameter;
+        this.tester = tester;
+    }
+
+    /**
+     *
+     * @return The parameter this clause tests
+     */
+    public Enum<?> getParameter() {
+        return parameter;
+    }
+
+    /**
+     *
+     * @param toTest The object to test, suitable for the request this clause is part of
+     * @return  True - if toTest matches the parameter of this clause<br>
+     *          False - otherwise
+     */
+    public boolean test(Requestable toTest) {
+        return tester.test(toTest);
+    }
+
+    /**
+     * Keeps, among the first count rows given, the ones whose object matches this clause<br>
+     * (or doesn't, according to matched), moving them to the front of rows in the same order.<br>
+     * The whole batch goes through this single loop, without branching on the outcome.
+     *
+     * @param items The objects to test, suitable for the request this clause is part of
+     * @param rows The indexes in items of the objects to test
+     * @param count The number of indexes in rows to consider
+     * @param matched True to keep the objects matching this clause, false to keep the others
+     * @return The number of rows kept
+     */
+    int retain(Requestable[] items, int[] rows, int count, boolean matched) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            rows[kept] = row;
+            kept += tester.test(items[row]) == matched ? 1 : 0;
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,291 @@
+package requests.classes;
+
+import requests.RequestMode;
+import requests.RequestedObjectType;
+import requests.applicable.Requestable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * This ADT represents a request compiled, with a modality, into a single predicate.<br>
+ * It holds only the parameters set in the request (its clauses) and it evaluates them<br>
+ * following a plan, stopping as soon as the result is known: at the first clause not matched<br>
+ * in AND modality, at the first one matched in OR modality.<br>
+ * <br>
+ * The plan adapts to the objects tested: about one evaluation every {@value #SAMPLE_RATE}<br>
+ * runs every clause measuring its cost (time taken) and its selectivity (how often it is matched);<br>
+ * likewise a batch (see {@code testAll}) runs every clause over about one object every {@value #SAMPLE_RATE}.<br>
+ * Every {@value #REPLAN_INTERVAL} of these samples the clauses are ordered again by their rank,<br>
+ * then the measures are halved, so that the plan follows the objects tested as they change:<br>
+ *      -AND modality: cost / probability of not being matched, so that cheap clauses which<br>
+ *       discard many objects come first<br>
+ *      -OR modality: cost / probability of being matched, so that cheap clauses which<br>
+ *       accept many objects come first<br>
+ * Clauses don't depend on each other, therefore their order never changes the result.<br>
+ * A compiled matcher can be shared between threads.
+ */
+public final class CompiledMatcher implements Predicate<Requestable> {
+    /**
+     * On average, one evaluation every SAMPLE_RATE is measured.
+     */
+    public static final int SAMPLE_RATE = 64;
+
+    /**
+     * The number of measured evaluations between two plannings.
+     */
+    public static final int REPLAN_INTERVAL = 256;
+
+    private final RequestedObjectType type;
+    private final RequestMode mode;
+    private final Clause[] clauses;
+    private final LongAdder[] nanos;
+    private final LongAdder[] passes;
+    private final LongAdder[] tested;
+    private final AtomicLong samples;
+    private volatile Clause[] plan;
+    private volatile int planChanges;
+
+    /**
+     * Creates a new compiled matcher.<br>
+     * Raises {@code NullPointerException} if type, mode or clauses are null.<br>
+     * Raises {@code IllegalArgumentException} if clauses represents the empty list.
+     *
+     * @param type The type of objects suitable for the request
+     * @param mode The combining mode of the clauses
+     * @param clauses The clauses of the request, in their initial evaluation order
+     */
+    public CompiledMatcher(RequestedObjectType type, RequestMode mode, List<Clause> clauses) {
+        if(type == null || mode == null || clauses == null){
+            throw new NullPointerException("Type, mode or clauses are null");
+        }
+        if(clauses.isEmpty()){
+            throw new IllegalArgumentException("At least one clause is needed");
+        }
+
+        this.type = type;
+        this.mode = mode;
+        this.clauses = clauses.toArray(new Clause[0]);
+        this.nanos = new LongAdder[this.clauses.length];
+        this.passes = new LongAdder[this.clauses.length];
+        this.tested = new LongAdder[this.clauses.length];
+        for (int i = 0; i < this.clauses.length; i++) {
+            this.nanos[i] = new LongAdder();
+            this.passes[i] = new LongAdder();
+            this.tested[i] = new LongAdder();
+        }
+        this.samples = new AtomicLong();
+        this.plan = this.clauses;
+        this.planChanges = 0;
+    }
+
+    /**
+     * Evaluate if the object passed, that must be suitable, matches the request compiled.<br>
+     * Raises {@code NullPointerException} if toTest is null.<br>
+     * Raises {@code IllegalArgumentException} if toTest is not a suitable object for the request.
+     *
+     * @param toTest The object whose matching has to be verified
+     * @return  True - if toTest matches the request compiled (with the modality compiled)<br>
+     *          False - otherwise
+     */
+    @Override
+    public boolean test(Requestable toTest) {
+        if(toTest.getType() != type)
+            throw new IllegalArgumentException("The object to search given is not suitable for this type of request");
+
+        if(clauses.length > 1 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0){
+            return sampledTest(toTest);
+        }
+
+        Clause[] current = plan;
+        if(mode == RequestMode.AND){
+            for (Clause clause : current) {
+                if(!clause.test(toTest))
+                    return false;
+            }
+            return true;
+        }
+        for (Clause clause : current) {
+            if(clause.test(toTest))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate which of the objects given, that must be suitable, match the request compiled.<br>
+     * The objects are checked all at once, then each clause of the current plan runs over<br>
+     * the whole batch, testing only the objects whose result is still unknown.<br>
+     * Beforehand, every clause runs over a sample of the batch, measuring it as {@code test} does.<br>
+     * Raises {@code NullPointerException} if toTest is null or contains null.<br>
+     * Raises {@code IllegalArgumentException} if at least one of the objects is not suitable for the request.
+     *
+     * @param toTest The objects whose matching has to be verified
+     * @return A new bitset whose set bits are the indexes of the objects matching the request compiled
+     */
+    public BitSet testAll(List<? extends Requestable> toTest) {
+        Requestable[] items = toTest.toArray(new Requestable[0]);
+        for (Requestable item : items) {
+            if(item.getType() != type)
+                throw new IllegalArgumentException("The object to search given is not suitable for this type of request");
+        }
+
+        if(clauses.length > 1 && items.length > 0){
+            sampleAll(items);
+        }
+
+        int[] rows = new int[items.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        // In AND modality rows keeps the objects not yet discarded, in OR modality the ones not yet accepted
+        boolean and = mode == RequestMode.AND;
+        int count = rows.length;
+        for (Clause clause : plan) {
+            if(count == 0)
+                break;
+            count = clause.retain(items, rows, count, and);
+        }
+
+        BitSet result = new BitSet(items.length);
+        if(!and){
+            result.set(0, items.length);
+        }
+        for (int i = 0; i < count; i++) {
+            result.flip(rows[i]);
+        }
+        return result;
+    }
+
+    /*
+     * Evaluates every clause, without short-circuiting, measuring each one.
+     */
+    private boolean sampledTest(Requestable toTest) {
+        boolean combined = mode == RequestMode.AND;
+        for (int i = 0; i < clauses.length; i++) {
+            long start = System.nanoTime();
+            boolean matched = clauses[i].test(toTest);
+            nanos[i].add(System.nanoTime() - start);
+            if(matched){
+                passes[i].increment();
+            }
+            tested[i].increment();
+            combined = mode == RequestMode.AND ? combined && matched : combined || matched;
+        }
+        addSamples(1);
+        return combined;
+    }
+
+    /*
+     * Runs every clause over about one object of the batch every SAMPLE_RATE, starting at a random one,
+     * measuring the time each clause takes over the whole sample and how many objects it matches.
+     */
+    private void sampleAll(Requestable[] items) {
+        int first = ThreadLocalRandom.current().nextInt(Math.min(SAMPLE_RATE, items.length));
+        int[] sample = new int[(items.length - first + SAMPLE_RATE - 1) / SAMPLE_RATE];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = first + i * SAMPLE_RATE;
+        }
+        int[] rows = new int[sample.length];
+        for (int i = 0; i < clauses.length; i++) {
+            System.arraycopy(sample, 0, rows, 0, sample.length);
+            long start = System.nanoTime();
+            int matched = clauses[i].retain(items, rows, rows.length, true);
+            nanos[i].add(System.nanoTime() - start);
+            passes[i].add(matched);
+            tested[i].add(sample.length);
+        }
+        addSamples(sample.length);
+    }
+
+    /*
+     * Only the thread whose samples reach a multiple of REPLAN_INTERVAL plans again, so that concurrent
+     * samples neither skip nor repeat a planning.
+     */
+    private void addSamples(int count) {
+        long total = samples.addAndGet(count);
+        if(total / REPLAN_INTERVAL != (total - count) / REPLAN_INTERVAL){
+            replan();
+        }
+    }
+
+    /*
+     * Ranks each clause by its mean cost and selectivity, then halves its measures: the older ones weigh less
+     * and less, so that the plan follows a change in the objects tested.
+     */
+    private synchronized void replan() {
+        double[] ranks = new double[clauses.length];
+        for (int i = 0; i < clauses.length; i++) {
+            double count = Math.max(tested[i].sum(), 1);
+            double cost = Math.max(nanos[i].sum(), 1) / count;
+            double matched = passes[i].sum() / count;
+            double decisive = mode == RequestMode.AND ? 1 - matched : matched;
+            ranks[i] = cost / Math.max(decisive, 1e-9);
+            halve(nanos[i]);
+            halve(passes[i]);
+            halve(tested[i]);
+        }
+
+        Integer[] order = new Integer[clauses.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> ranks[i]));
+        Clause[] newPlan = new Clause[clauses.length];
+        for (int i = 0; i < order.length; i++) {
+            newPlan[i] = clauses[order[i]];
+        }
+        if(!Arrays.equals(newPlan, plan)){
+            plan = newPlan;
+            planChanges++;
+        }
+    }
+
+    private static void halve(LongAdder adder) {
+        adder.add(-(adder.sum() / 2));
+    }
+
+    /**
+     *
+     * @return The combining mode of this matcher
+     */
+    public RequestMode getMode() {
+        return mode;
+    }
+
+    /**
+     *
+     * @return A new list with the parameters tested by this matcher, in the evaluation order of the current plan
+     */
+    public List<Enum<?>> getParameters() {
+        Clause[] current = plan;
+        List<Enum<?>> result = new ArrayList<>(current.length);
+        for (Clause clause : current) {
+            result.add(clause.getParameter());
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return The number of times the plan of this matcher has changed
+     */
+    public int getPlanChanges() {
+        return planChanges;
+    }
+
+    /**
+     *
+     * @return The number of evaluations measured so far
+     */
+    public long getSamples() {
+        return samples.get();
+    }
+}
@@ -2,14 +2,15 @@ package requests.classes;
 
 import domain.Movement;
 import domain.Tag;
+import domain.tags.TagQuery;
 import requests.RequestedObjectType;
 import requests.applicable.ParameterSettersExposer;
 import requests.applicable.RequestBuilder;
 import requests.applicable.Requestable;
 import requests.specifiers.MovementRequestParameters;
 import requests.specifiers.TransactionRequestParameters;
+import utilities.money.Money;
 import utilities.time.Time;
-import utilities.time.TimeComparisonResult;
 
 import java.lang.reflect.Method;
 import java.util.*;
@@ -26,47 +27,93 @@ import java.util.*;
  *
  */
 public class MovementRequest extends PredicateRequest {
-    private double[] rangeQuantity;
+    private long[] rangeQuantity;
     private Collection<String> wordsDescription;
-    private Time[] rangeTime;
-    private Collection<Tag> tags;
+    private int[] rangeTime;
+    private TagQuery tags;
+    private volatile MovementRequest withoutRanges;
 
-    private MovementRequest(double[] rangeQuantity, Collection<String> wordsDescription, Time[] rangeTime, Collection<Tag> tags){
+    private MovementRequest(long[] rangeQuantity, Collection<String> wordsDescription, Time[] rangeTime, Collection<Tag> tags){
         this.rangeQuantity = rangeQuantity;
         this.wordsDescription = wordsDescription;
-        this.rangeTime = rangeTime;
+        this.rangeTime = rangeTime == null ? null : new int[]{rangeTime[0].toSecondOfDay(), rangeTime[1].toSecondOfDay()};
+        this.tags = tags == null ? null : new TagQuery(tags);
+    }
+
+    private MovementRequest(Collection<String> wordsDescription, TagQuery tags){
+        this.wordsDescription = wordsDescription;
         this.tags = tags;
     }
 
+    /**
+     *
+     * @return A copy of the group of words searched by this request, or null if it isn't set
+     */
+    public Collection<String> getWordsDescription() {
+        return wordsDescription == null ? null : new ArrayList<>(wordsDescription);
+    }
+
+    /**
+     *
+     * @return  A new array with the minimum and the maximum quantity, in minor units, searched by this request<br>
+     *          (both included), or null if it isn't set
+     */
+    public long[] getRangeQuantity() {
+        return rangeQuantity == null ? null : rangeQuantity.clone();
+    }
+
+    /**
+     *
+     * @return  A new array with the starting and the ending second of the day searched by this request<br>
+     *          (both included), or null if it isn't set
+     */
+    public int[] getRangeTime() {
+        return rangeTime == null ? null : rangeTime.clone();
+    }
+
+    /**
+     * Gives the request for the parameters of this request that are not ranges (words and tags), so that<br>
+     * the ranges can be looked up by other means, such as the columns of a budget (see {@code Budget.getMovements}).<br>
+     * The same request is given every time, so that its compiled matchers are kept.
+     *
+     * @return The request for the words and the tags of this request, or null if this request sets neither
+     */
+    public MovementRequest withoutRanges() {
+        if(wordsDescription == null && tags == null){
+            return null;
+        }
+        MovementRequest result = withoutRanges;
+        if(result == null){
+            // A lost race only creates an equivalent request, which is then discarded
+            result = new MovementRequest(wordsDescription, tags);
+            withoutRanges = result;
+        }
+        return result;
+    }
+
     @Override
     public boolean isSuitable(Requestable toTest) {
         return toTest.getType() == RequestedObjectType.MOVEMENT;
     }
 
     @Override
-    protected boolean orCombiner(Requestable toTest) {
-        Movement movement = (Movement) toTest;
-        boolean combined = false;
-        if(rangeQuantity != null) {combined = rangeQuantityTester(movement);}
-        if(wordsDescription != null) {combined = combined || wordsDescriptionTester(movement);}
-        if(rangeTime != null) {combined = combined || rangeTimeTester(movement);}
-        if(tags != null) {combined = combined || tagsTester(movement);}
-        return combined;
+    protected RequestedObjectType getSuitableType() {
+        return RequestedObjectType.MOVEMENT;
     }
 
     @Override
-    protected boolean andCombiner(Requestable toTest) {
-        Movement movement = (Movement) toTest;
-        boolean combined = true;
-        if(rangeQuantity != null) {combined = rangeQuantityTester(movement);}
-        if(wordsDescription != null) {combined = combined && wordsDescriptionTester(movement);}
-        if(rangeTime != null) {combined = combined && rangeTimeTester(movement);}
-        if(tags != null) {combined = combined && tagsTester(movement);}
-        return combined;
+    protected List<Clause> clauses() {
+        List<Clause> result = new ArrayList<>();
+        if(rangeQuantity != null) {result.add(new Clause(MovementRequestParameters.RANGE_QUANTITY, toTest -> rangeQuantityTester((Movement) toTest)));}
+        if(wordsDescription != null) {result.add(new Clause(MovementRequestParameters.GROUP_WORDS, toTest -> wordsDescriptionTester((Movement) toTest)));}
+        if(rangeTime != null) {result.add(new Clause(MovementRequestParameters.RANGE_TIME, toTest -> rangeTimeTester((Movement) toTest)));}
+        if(tags != null) {result.add(new Clause(MovementRequestParameters.GROUP_TAGS, toTest -> tagsTester((Movement) toTest)));}
+        return result;
     }
 
     private boolean rangeQuantityTester(Movement toTest) {
-        return (toTest.getQuantity() >= rangeQuantity[0] && toTest.getQuantity() <= rangeQuantity[1]);
+        long quantity = toTest.getAmount().getMinorUnits();
+        return (quantity >= rangeQuantity[0] && quantity <= rangeQuantity[1]);
     }
 
     private boolean wordsDescriptionTester(Movement toTest) {
@@ -78,30 +125,18 @@ public class MovementRequest extends PredicateRequest {
     }
 
     private boolean rangeTimeTester(Movement toTest){
-        TimeComparisonResult testStartingTime = toTest.getTime().compare(rangeTime[0]);
-        TimeComparisonResult testEndingTime = toTest.getTime().compare(rangeTime[1]);
-
-        return  ((testStartingTime == TimeComparisonResult.AFTER) || (testStartingTime == TimeComparisonResult.EQUALS)) &&
-                ((testEndingTime == TimeComparisonResult.BEFORE) || (testEndingTime == TimeComparisonResult.EQUALS));
+        return Time.isBetween(toTest.getTime().toSecondOfDay(), rangeTime[0], rangeTime[1]);
     }
 
     private boolean tagsTester(Movement toTest){
-        boolean doesItMatch = true;
-        Iterator<Tag> itTags = toTest.getTags().iterator();
-        while(itTags.hasNext() && doesItMatch) {
-            Tag tag = itTags.next();
-            if(!this.tags.contains(tag)){
-                doesItMatch = false;
-            }
-        }
-        return doesItMatch;
+        return toTest.getTagSet().isSubsetOf(this.tags.getTagSet());
     }
 
     /**
      * Builder for a movement request
      */
     public static class MovementRequestBuilder implements RequestBuilder<MovementRequestParameters> {
-        private double[] rangeQuantity = null;
+        private long[] rangeQuantity = null;
         private Collection<String> wordsDescription = null;
         private Time[] rangeTime = null;
         private Collection<Tag> tags = null;
@@ -113,6 +148,39 @@ public class MovementRequest extends PredicateRequest {
 
         /**
          * Sets the range of money value's quantity to search.<br>
+         * Raises {@code NullPointerException} if min or max are null.<br>
+         * Raises {@code IllegalArgumentException} if:<br>
+         *      -Min or max are 0 or negative, or they are more precise than a cent<br>
+         *      -Min is greater than max
+         *
+         * @param min The minimum quantity of value for a movement to match this request (included)
+         * @param max The maximum quantity of value for a movement to match this request (included)
+         * @return This builder but with range of quantity that has been set
+         */
+        public MovementRequestBuilder withQuantity(Money min, Money max){
+            if(min == null || max == null){
+                throw new NullPointerException("Min or max are null");
+            }
+            if(min.signum() <= 0 || max.signum() <= 0){
+                throw new IllegalArgumentException("Min and max must be positive");
+            }
+            if(max.compareTo(min) < 0){
+                throw new IllegalArgumentException("Max must be greater than min");
+            }
+
+            try {
+                this.rangeQuantity = new long[]{
+                        min.withScale(Money.DEFAULT_SCALE).getMinorUnits(),
+                        max.withScale(Money.DEFAULT_SCALE).getMinorUnits()
+                };
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Min and max must not be more precise than a cent", e);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the range of money value's quantity to search, rounding min and max to the nearest cent.<br>
          * Raises {@code IllegalArgumentException} if:<br>
          *      -Min or max are 0 or negative<br>
          *      -Min is greater than max
@@ -129,8 +197,7 @@ public class MovementRequest extends PredicateRequest {
                 throw new IllegalArgumentException("Max must be greater than min");
             }
 
-            this.rangeQuantity = new double[]{min, max};
-            return this;
+            return withQuantity(Money.of(min), Money.of(max));
         }
 
         /**
@@ -156,7 +223,7 @@ public class MovementRequest extends PredicateRequest {
         /**
          * Sets the range of time to search.<br>
          * Raises {@code NullPointerException} if from or to are null.<br>
-         * Raises {@code IllegalArgumentException} if from is before to.
+         * Raises {@code IllegalArgumentException} if from is after to.
          *
          * @param from The starting time for a movement to match this request (included)
          * @param to The ending time for a movement to match this request (included)
@@ -165,7 +232,7 @@ public class MovementRequest extends PredicateRequest {
             if(from == null || to == null){
                 throw new NullPointerException("The starting time or the ending one to search are null");
             }
-            if(from.compare(to) == TimeComparisonResult.BEFORE){
+            if(from.isAfter(to)){
                 throw new IllegalArgumentException("The starting time must be before or equal to the ending one");
             }
 
@@ -2,53 +2,69 @@ package requests.classes;
 
 import requests.Request;
 import requests.RequestMode;
+import requests.RequestedObjectType;
 import requests.applicable.Requestable;
 
-import java.util.function.Predicate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This abstraction represents a request whose functioning is
- * based on a predicate object.
+ * based on predicate objects, one for each parameter set (its clauses).<br>
+ * For each modality the clauses are compiled, the first time they are needed,<br>
+ * into a {@code CompiledMatcher}, so that evaluating a request never modifies it<br>
+ * and a request can be shared between threads.
  */
 //TODO: Implement BudgetRequest
 public abstract class PredicateRequest implements Request {
-    private Predicate<Requestable> tester;
+    private final AtomicReferenceArray<CompiledMatcher> matchers = new AtomicReferenceArray<>(RequestMode.values().length);
 
     @Override
     public boolean doesItMatch(Requestable toTest, RequestMode mode) {
         if(toTest == null)
             throw new NullPointerException("The object to search given is null");
-        if(!isSuitable(toTest))
-            throw new IllegalArgumentException("The object to search given is not suitable for this type of request");
-        setupTester(mode);
-        return tester.test(toTest);
+        return compile(mode).test(toTest);
     }
 
-    private void setupTester(RequestMode mode) {
-        switch (mode) {
-            case AND -> this.tester = (this::andCombiner);
-            case OR -> this.tester = (this::orCombiner);
+    @Override
+    public BitSet whichMatch(List<? extends Requestable> toTest, RequestMode mode) {
+        if(toTest == null)
+            throw new NullPointerException("The objects to search given are null");
+        return compile(mode).testAll(toTest);
+    }
+
+    /**
+     * Compiles this request, with the modality given, into a single predicate.<br>
+     * The same matcher is given every time for the same modality.<br>
+     * Raises {@code NullPointerException} if mode is null.
+     *
+     * @param mode The combining mode chosen for evaluating the matching
+     * @return The compiled matcher of this request with the modality given
+     */
+    public CompiledMatcher compile(RequestMode mode) {
+        CompiledMatcher matcher = matchers.get(mode.ordinal());
+        if(matcher == null){
+            // A lost race only compiles an equivalent matcher, which is then discarded for the one published
+            matcher = new CompiledMatcher(getSuitableType(), mode, clauses());
+            if(!matchers.compareAndSet(mode.ordinal(), null, matcher)){
+                matcher = matchers.get(mode.ordinal());
+            }
         }
+        return matcher;
     }
 
     /**
-     * Evaluate, in OR modality, if the parameters of this request
-     * match the testable passed.
      *
-     * @param toTest The testable to be checked
-     * @return  True - if and only if the testable is suitable, and it match this request with the OR modality
-     *          False - otherwise
+     * @return The type of objects suitable for this request
      */
-    protected abstract boolean orCombiner(Requestable toTest);
+    protected abstract RequestedObjectType getSuitableType();
 
     /**
-     * Evaluate, in AND modality, if the parameters of this request
-     * match the testable passed.
+     * Gives the clauses of this request, one for each parameter set, each one testing<br>
+     * if a suitable object matches that parameter.
      *
-     * @param toTest The testable to be checked
-     * @return  True - if and only if the testable is suitable, and it match this request with the AND modality
-     *          False - otherwise
+     * @return A new list with the clauses of this request, in evaluation order
      */
-    protected abstract boolean andCombiner(Requestable toTest);
+    protected abstract List<Clause> clauses();
 }
-
@@ -3,6 +3,7 @@ package requests.classes;
 import domain.Tag;
 import domain.Transaction;
 import domain.TransactionType;
+import domain.tags.TagQuery;
 import requests.RequestedObjectType;
 import requests.applicable.RequestBuilder;
 import requests.applicable.Requestable;
@@ -26,13 +27,37 @@ public class TransactionRequest extends PredicateRequest {
     private TransactionType transType;
     private Collection<String> wordsDescription;
     private Date[] rangeDates;
-    private Collection<Tag> tags;
+    private TagQuery tags;
 
     private TransactionRequest(TransactionType transType, Collection<String> wordsDescription, Date[] rangeDates, Collection<Tag> tags){
         this.transType = transType;
         this.wordsDescription = wordsDescription;
         this.rangeDates = rangeDates;
-        this.tags = tags;
+        this.tags = tags == null ? null : new TagQuery(tags);
+    }
+
+    /**
+     *
+     * @return The type of transaction searched by this request, or null if it isn't set
+     */
+    public TransactionType getTransactionType() {
+        return transType;
+    }
+
+    /**
+     *
+     * @return A copy of the range of dates searched by this request, or null if it isn't set
+     */
+    public Date[] getRangeDates() {
+        return rangeDates == null ? null : new Date[]{rangeDates[0], rangeDates[1]};
+    }
+
+    /**
+     *
+     * @return A copy of the group of words searched by this request, or null if it isn't set
+     */
+    public Collection<String> getWordsDescription() {
+        return wordsDescription == null ? null : new ArrayList<>(wordsDescription);
     }
 
     @Override
@@ -41,25 +66,18 @@ public class TransactionRequest extends PredicateRequest {
     }
 
     @Override
-    protected boolean orCombiner(Requestable toTest) {
-        Transaction transaction = (Transaction) toTest;
-        boolean combined = false;
-        if(transType != null) {combined = transTypeTester(transaction);}
-        if(wordsDescription != null) {combined = combined || wordsDescriptionTester(transaction);}
-        if(rangeDates != null) {combined = combined || rangeDatesTester(transaction);}
-        if(tags != null) {combined = combined || tagsTester(transaction);}
-        return combined;
+    protected RequestedObjectType getSuitableType() {
+        return RequestedObjectType.TRANSACTION;
     }
 
     @Override
-    protected boolean andCombiner(Requestable toTest) {
-        Transaction transaction = (Transaction) toTest;
-        boolean combined = true;
-        if(transType != null) {combined = transTypeTester(transaction);}
-        if(wordsDescription != null) {combined = combined && wordsDescriptionTester(transaction);}
-        if(rangeDates != null) {combined = combined && rangeDatesTester(transaction);}
-        if(tags != null) {combined = combined && tagsTester(transaction);}
-        return combined;
+    protected List<Clause> clauses() {
+        List<Clause> result = new ArrayList<>();
+        if(transType != null) {result.add(new Clause(TransactionRequestParameters.SINGLE_TYPE, toTest -> transTypeTester((Transaction) toTest)));}
+        if(wordsDescription != null) {result.add(new Clause(TransactionRequestParameters.GROUP_WORDS, toTest -> wordsDescriptionTester((Transaction) toTest)));}
+        if(rangeDates != null) {result.add(new Clause(TransactionRequestParameters.RANGE_DATES, toTest -> rangeDatesTester((Transaction) toTest)));}
+        if(tags != null) {result.add(new Clause(TransactionRequestParameters.GROUP_TAGS, toTest -> tagsTester((Transaction) toTest)));}
+        return result;
     }
 
     private boolean transTypeTester(Transaction toTest) {
@@ -84,15 +102,7 @@ public class TransactionRequest extends PredicateRequest {
     }
 
     private boolean tagsTester(Transaction toTest){
-        boolean doesItMatch = true;
-        Iterator<Tag> itTags = toTest.getTags().iterator();
-        while(itTags.hasNext() && doesItMatch) {
-            Tag tag = itTags.next();
-            if(!this.tags.contains(tag)){
-                doesItMatch = false;
-            }
-        }
-        return doesItMatch;
+        return toTest.getTagSet().isSubsetOf(this.tags.getTagSet());
     }
 
     /**
@@ -13,6 +13,9 @@ import requests.specifiers.TransactionRequestParameters;
  * @param <K> The enumerator to which the request' parameters, of the request wanted, are associated to
  */
 public class RequestFactoryCreator<K extends Enum<K>> {
+    private static final MovementRequestFactory MOVEMENT_FACTORY = new MovementRequestFactory();
+    private static final TransactionRequestFactory TRANSACTION_FACTORY = new TransactionRequestFactory();
+
     private RequestedObjectType requestType;
     private Class<K> paramsEnumClass;
 
@@ -51,15 +54,21 @@ public class RequestFactoryCreator<K extends Enum<K>> {
         this.requestType = requestType;
     }
 
-    //TODO: Contract
+    /**
+     * Gives the factory of requests of the type chosen.<br>
+     * Factories hold no state, so the same factory is shared by every creator and thread.<br>
+     * Raises {@code UnsupportedOperationException} if the type of request chosen doesn't have a factory yet.
+     *
+     * @return The factory of requests of the type chosen
+     */
     @SuppressWarnings("unchecked")
     public RequestFactory<K> createFactory(){
         switch(requestType){
             case MOVEMENT -> {
-                return (RequestFactory<K>) new MovementRequestFactory();
+                return (RequestFactory<K>) MOVEMENT_FACTORY;
             }
             case TRANSACTION -> {
-                return (RequestFactory<K>) new TransactionRequestFactory();
+                return (RequestFactory<K>) TRANSACTION_FACTORY;
             }
         }
         throw new UnsupportedOperationException("The type of request selected hasn't a factory");
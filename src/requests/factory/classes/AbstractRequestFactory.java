@@ -4,21 +4,55 @@ import requests.Request;
 import requests.applicable.RequestBuilder;
 import requests.factory.RequestFactory;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
-//TODO: Class contract
+/**
+ * This abstraction represents a factory of requests which sets the parameters<br>
+ * through the builder of the request type managed.<br>
+ * A factory holds no state: every request is assembled in a new builder, and the<br>
+ * builder's setters are resolved once for each request type (see {@code SetterTable}),<br>
+ * therefore a factory can be shared between threads.
+ *
+ * @param <K> The enumerator to which the request' parameters are associated to
+ * @param <B> The type of the builder of the request managed
+ */
 //TODO: Implement a BudgetRequestFactory
-public abstract class AbstractRequestFactory<K extends Enum<K>> implements RequestFactory<K> {
-    private RequestBuilder<K> builder;
+public abstract class AbstractRequestFactory<K extends Enum<K>, B extends RequestBuilder<K>> implements RequestFactory<K> {
 
+    /**
+     * {@inheritDoc}<br>
+     * Raises {@code IllegalArgumentException} also if the values of a parameter are not supported<br>
+     * or are refused by the request's builder.
+     */
     @Override
     public Request createRequest(Map<K, List<Object>> args) {
         checkArgumentsValidity(args);
-        setupBuilder(args);
+        B builder = newBuilder();
+        SetterTable<K> setters = getSetters();
+        for(Map.Entry<K, List<Object>> entry : args.entrySet()){
+            setters.set(builder, entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a new request setting its parameters directly on the typed builder,<br>
+     * without boxing nor looking up setters.<br>
+     * Raises {@code NullPointerException} if parameters is null.
+     *
+     * @param parameters The operation setting the parameters on the builder
+     * @return A new request with the desidered type and provided parameters
+     */
+    public Request createRequest(Consumer<? super B> parameters) {
+        if(parameters == null){
+            throw new NullPointerException("Parameters are null");
+        }
+
+        B builder = newBuilder();
+        parameters.accept(builder);
         return builder.build();
     }
 
@@ -32,8 +66,10 @@ public abstract class AbstractRequestFactory<K extends Enum<K>> implements Reque
             List<Object> values = itValues.next();
             if(values == null){
                 valid = false;
-            } else if (values.contains(null)){
-                valid = false;
+            } else {
+                for (Object value : values) {
+                    valid = valid && value != null;
+                }
             }
         }
         if(!valid){
@@ -41,36 +77,17 @@ public abstract class AbstractRequestFactory<K extends Enum<K>> implements Reque
         }
     }
 
-    private void setupBuilder(Map<K, List<Object>> args) {
-        builder = getBuilder();
-        Map<K, Method> paramSetters = null;
-        try {
-            paramSetters = getParameterSetters();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        for(Map.Entry<K, List<Object>> entry : args.entrySet()){
-            Method setter = paramSetters.get(entry.getKey());
-            List<Object> paramValues = entry.getValue();
-            try {
-                setter.invoke(builder, paramValues.toArray());
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
     /**
      *
-     * @return The request's builder for the request type<br>
+     * @return A new request's builder for the request type<br>
      * managed by this factory
      */
-    abstract RequestBuilder<K> getBuilder();
+    abstract B newBuilder();
 
     /**
      *
-     * @return A map containing, for each value of enumerator K, the<br>
-     * corresponding method for setting that parameter.
+     * @return The table containing, for each value of enumerator K, the<br>
+     * corresponding setter of that parameter.
      */
-    abstract Map<K, Method> getParameterSetters() throws NoSuchMethodException;
+    abstract SetterTable<K> getSetters();
 }
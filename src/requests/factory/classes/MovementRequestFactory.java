@@ -3,9 +3,6 @@ package requests.factory.classes;
 import requests.classes.MovementRequest.MovementRequestBuilder;
 import requests.specifiers.MovementRequestParameters;
 
-import java.lang.reflect.Method;
-import java.util.Map;
-
 /**
  * This ADT represents a mechanism to assemble requests for movements,<br>
  * hiding the mechanisms strictly coupled to that request type.<br>
@@ -16,21 +13,22 @@ import java.util.Map;
  *     -GROUP_WORDS supports: Collection of String
  *     -GROUP_TAGS supports: Collection of Tag
  */
-public class MovementRequestFactory extends AbstractRequestFactory<MovementRequestParameters> {
-    private MovementRequestBuilder builder;
+public class MovementRequestFactory extends AbstractRequestFactory<MovementRequestParameters, MovementRequestBuilder> {
+    private static final SetterTable<MovementRequestParameters> SETTERS =
+            SetterTable.resolve(MovementRequestParameters.class, new MovementRequestBuilder());
 
-    //TODO: Contract
-    public MovementRequestFactory() {
-        this.builder = new MovementRequestBuilder();
-    }
+    /**
+     * Creates a new factory of requests for movements.
+     */
+    public MovementRequestFactory() {}
 
     @Override
-    MovementRequestBuilder getBuilder() {
-        return builder;
+    MovementRequestBuilder newBuilder() {
+        return new MovementRequestBuilder();
     }
 
     @Override
-    Map<MovementRequestParameters, Method> getParameterSetters() throws NoSuchMethodException {
-        return builder.getExposedMethods();
+    SetterTable<MovementRequestParameters> getSetters() {
+        return SETTERS;
     }
 }
@@ -0,0 +1,89 @@
+package requests.factory.classes;
+
+import requests.applicable.RequestBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This ADT represents the table of the setters of a request builder, one for each<br>
+ * parameter of the request, resolved once into method handles.<br>
+ * Every handle is adapted to take the builder and the values of the parameter as an array,<br>
+ * so that setting a parameter is a direct call, without reflective lookups nor checks.<br>
+ * A table is immutable, therefore it can be shared between threads.
+ *
+ * @param <K> The enumerator to which the request' parameters are associated to
+ */
+final class SetterTable<K extends Enum<K>> {
+    private static final MethodType SETTER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Map<K, MethodHandle> setters;
+    private final Map<K, Integer> arities;
+
+    private SetterTable(Map<K, MethodHandle> setters, Map<K, Integer> arities) {
+        this.setters = setters;
+        this.arities = arities;
+    }
+
+    /**
+     * Resolves the setters exposed by the builder given.<br>
+     * Raises {@code IllegalStateException} if at least one of the setters cannot be found or accessed.
+     *
+     * @param paramsEnumClass The class of the {@code K} type parameter
+     * @param builder A builder exposing the setters to resolve
+     * @return The table of the setters exposed by builder
+     */
+    static <K extends Enum<K>> SetterTable<K> resolve(Class<K> paramsEnumClass, RequestBuilder<K> builder) {
+        Map<K, MethodHandle> setters = new EnumMap<>(paramsEnumClass);
+        Map<K, Integer> arities = new EnumMap<>(paramsEnumClass);
+        try {
+            for (Map.Entry<K, Method> entry : builder.getExposedMethods().entrySet()) {
+                Method method = entry.getValue();
+                MethodHandle handle = MethodHandles.publicLookup().unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterCount())
+                        .asType(SETTER_TYPE);
+                setters.put(entry.getKey(), handle);
+                arities.put(entry.getKey(), method.getParameterCount());
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("The setters of " + builder.getClass().getSimpleName() + " cannot be resolved", e);
+        }
+        return new SetterTable<>(setters, arities);
+    }
+
+    /**
+     * Sets a parameter in the builder given.<br>
+     * Raises {@code IllegalArgumentException} if:<br>
+     *      -parameter is not supported<br>
+     *      -values are not as many as, or of the types of, the ones supported by the parameter<br>
+     *      -the builder refuses the values
+     *
+     * @param builder The builder in which setting the parameter
+     * @param parameter The parameter to set
+     * @param values The values of the parameter
+     */
+    void set(RequestBuilder<K> builder, K parameter, List<Object> values) {
+        MethodHandle setter = setters.get(parameter);
+        if (setter == null) {
+            throw new IllegalArgumentException("The parameter " + parameter + " is not supported");
+        }
+        if (arities.get(parameter) != values.size()) {
+            throw new IllegalArgumentException("The parameter " + parameter + " needs " + arities.get(parameter) + " values");
+        }
+
+        try {
+            Object ignored = (Object) setter.invokeExact((Object) builder, values.toArray());
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException("The values of the parameter " + parameter + " are not of the supported types", e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("The parameter " + parameter + " cannot be set", e);
+        }
+    }
+}
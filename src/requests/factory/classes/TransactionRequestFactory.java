@@ -3,9 +3,6 @@ package requests.factory.classes;
 import requests.classes.TransactionRequest.TransactionRequestBuilder;
 import requests.specifiers.TransactionRequestParameters;
 
-import java.lang.reflect.Method;
-import java.util.Map;
-
 /**
  * This ADT represents a mechanism to assemble requests for transactions,<br>
  * hiding the mechanisms strictly coupled to that request type.<br>
@@ -16,21 +13,22 @@ import java.util.Map;
  *     -GROUP_WORDS supports: Collection of String
  *     -GROUP_TAGS supports: Collection of Tag
  */
-public class TransactionRequestFactory extends AbstractRequestFactory<TransactionRequestParameters> {
-    private TransactionRequestBuilder builder;
+public class TransactionRequestFactory extends AbstractRequestFactory<TransactionRequestParameters, TransactionRequestBuilder> {
+    private static final SetterTable<TransactionRequestParameters> SETTERS =
+            SetterTable.resolve(TransactionRequestParameters.class, new TransactionRequestBuilder());
 
-    //TODO: Contract
-    public TransactionRequestFactory() {
-        this.builder = new TransactionRequestBuilder();
-    }
+    /**
+     * Creates a new factory of requests for transactions.
+     */
+    public TransactionRequestFactory() {}
 
     @Override
-    TransactionRequestBuilder getBuilder() {
-        return builder;
+    TransactionRequestBuilder newBuilder() {
+        return new TransactionRequestBuilder();
     }
 
     @Override
-    Map<TransactionRequestParameters, Method> getParameterSetters() throws NoSuchMethodException {
-        return builder.getExposedMethods();
+    SetterTable<TransactionRequestParameters> getSetters() {
+        return SETTERS;
     }
 }
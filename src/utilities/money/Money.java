@@ -0,0 +1,208 @@
+package utilities.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * This ADT represents an immutable, fixed-point, quantity of money value.<br>
+ * A quantity of money value, abstractly, is represented by:<br>
+ * <br>
+ * -A whole number of minor units (e.g. euro cents)<br>
+ * -The scale, meaning the number of decimal digits of a minor unit (e.g. 2 for euro cents)<br>
+ * <br>
+ * Being based on a long, sums of quantities with the same scale are exact.
+ */
+public final class Money implements Comparable<Money> {
+    /**
+     * The scale used by the domain for every quantity of money value (cents).
+     */
+    public static final int DEFAULT_SCALE = 2;
+
+    /**
+     * Zero, with the default scale.
+     */
+    public static final Money ZERO = new Money(0, DEFAULT_SCALE);
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    private final long minorUnits;
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    /**
+     * Creates a new quantity of money value given its minor units and its scale.<br>
+     * Raises {@code IllegalArgumentException} if scale is negative or greater than 9.
+     *
+     * @param minorUnits The number of minor units
+     * @param scale The number of decimal digits of a minor unit
+     * @return The quantity of money value with the minor units and scale given
+     */
+    public static Money ofMinorUnits(long minorUnits, int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Scale must be between 0 and " + (POWERS_OF_TEN.length - 1));
+        }
+        return new Money(minorUnits, scale);
+    }
+
+    /**
+     * Creates a new quantity of money value, with the default scale, given its minor units.
+     *
+     * @param minorUnits The number of minor units (cents)
+     * @return The quantity of money value with the minor units given
+     */
+    public static Money ofMinorUnits(long minorUnits) {
+        return new Money(minorUnits, DEFAULT_SCALE);
+    }
+
+    /**
+     * Creates a new quantity of money value, with the default scale, from the decimal value given<br>
+     * rounding it (half even) to the nearest minor unit.<br>
+     * Raises {@code IllegalArgumentException} if value is not a finite number.<br>
+     * Raises {@code ArithmeticException} if value doesn't fit in a long of minor units.
+     *
+     * @param value The decimal value
+     * @return The quantity of money value nearest to the value given
+     */
+    public static Money of(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Value must be a finite number");
+        }
+        return new Money(BigDecimal.valueOf(value).setScale(DEFAULT_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact(), DEFAULT_SCALE);
+    }
+
+    /**
+     *
+     * @return The number of minor units of this quantity
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     *
+     * @return The number of decimal digits of a minor unit of this quantity
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Gives this quantity with another scale.<br>
+     * Raises {@code IllegalArgumentException} if scale is negative or greater than 9.<br>
+     * Raises {@code ArithmeticException} if this quantity cannot be represented exactly with the scale given.
+     *
+     * @param scale The scale wanted
+     * @return This quantity with the scale given
+     */
+    public Money withScale(int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Scale must be between 0 and " + (POWERS_OF_TEN.length - 1));
+        }
+        if (scale == this.scale) {
+            return this;
+        }
+        if (scale > this.scale) {
+            return new Money(Math.multiplyExact(minorUnits, POWERS_OF_TEN[scale - this.scale]), scale);
+        }
+        long divisor = POWERS_OF_TEN[this.scale - scale];
+        if (minorUnits % divisor != 0) {
+            throw new ArithmeticException("The quantity cannot be represented with scale " + scale);
+        }
+        return new Money(minorUnits / divisor, scale);
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.<br>
+     * Raises {@code ArithmeticException} if the result overflows.
+     *
+     * @param other The quantity to add
+     * @return The sum of this quantity and the other, with the greatest of the two scales
+     */
+    public Money plus(Money other) {
+        int common = Math.max(scale, other.scale);
+        return new Money(Math.addExact(withScale(common).minorUnits, other.withScale(common).minorUnits), common);
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.<br>
+     * Raises {@code ArithmeticException} if the result overflows.
+     *
+     * @param other The quantity to subtract
+     * @return The difference between this quantity and the other, with the greatest of the two scales
+     */
+    public Money minus(Money other) {
+        int common = Math.max(scale, other.scale);
+        return new Money(Math.subtractExact(withScale(common).minorUnits, other.withScale(common).minorUnits), common);
+    }
+
+    /**
+     *
+     * @return This quantity with the opposite sign
+     */
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), scale);
+    }
+
+    /**
+     *
+     * @return The signum of this quantity: -1, 0 or 1
+     */
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    /**
+     *
+     * @return This quantity as a decimal value (possibly approximated)
+     */
+    public double toDouble() {
+        return (double) minorUnits / POWERS_OF_TEN[scale];
+    }
+
+    /**
+     *
+     * @return This quantity as an exact decimal value
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (scale == other.scale) {
+            return Long.compare(minorUnits, other.minorUnits);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    /**
+     * Verify if this quantity and the object passed are equal.<br>
+     * Two quantities are equal if they represent the same value, whatever their scale.
+     *
+     * @param o The other object to compare to this
+     * @return  True - if o is a quantity of money value with the same value of this<br>
+     *          False - otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return compareTo((Money) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return toBigDecimal().stripTrailingZeros().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
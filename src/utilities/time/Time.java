@@ -9,22 +9,66 @@ import java.util.concurrent.TimeUnit;
  * -An hour<br>
  * -A minute<br>
  * -Second<br>
+ * <br>
+ * Concretely a time is packed in the number of seconds elapsed since midnight (its second of the day),<br>
+ * so that comparing two times is a single int comparison.<br>
+ * The static factories return shared instances, one for each of the 86400 seconds of a day.
  */
-public class Time {
-    private int hour;
-    private int minute;
-    private int second;
+public class Time implements Comparable<Time> {
+    /**
+     * The number of seconds in a day.
+     */
+    public static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    // Offset, in seconds, between the clock of the underlying system and the time given by now()
+    private static final int NOW_OFFSET = 60 * 60;
+    private static final Time[] CACHE = new Time[SECONDS_PER_DAY];
+
+    private final int secondOfDay;
 
     /**
      *
      * @return The time object representing the current time point according to the underlying system
      */
     public static Time now(){
-        long timestamp = System.currentTimeMillis();
-        int seconds = (int) TimeUnit.MILLISECONDS.toSeconds(timestamp) % 60;
-        int minutes = (int) TimeUnit.MILLISECONDS.toMinutes(timestamp) % 60;
-        int hours = (int) (TimeUnit.MILLISECONDS.toHours(timestamp) % (24)) + 1;
-        return new Time(hours, minutes, seconds);
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        return ofSecondOfDay(Math.floorMod(seconds + NOW_OFFSET, SECONDS_PER_DAY));
+    }
+
+    /**
+     * Gives the time with the given hour, minute and second.<br>
+     * Differently from the constructor, it does not create a new object every time.<br>
+     * Raises IllegalArgumentException if hour, minute or second are out of ranges (see the constructor)
+     *
+     * @param hour The hour that the time represents
+     * @param minute The minute that the time represents
+     * @param second The second that the time represents
+     * @return The time with the given hour, minute and second
+     */
+    public static Time of(int hour, int minute, int second){
+        checkRanges(hour, minute, second);
+        return ofSecondOfDay(hour * 3600 + minute * 60 + second);
+    }
+
+    /**
+     * Gives the time that is the given number of seconds after midnight.<br>
+     * Raises IllegalArgumentException if secondOfDay is not between 0 and 86399 (both included)
+     *
+     * @param secondOfDay The number of seconds elapsed since midnight
+     * @return The time with the given second of the day
+     */
+    public static Time ofSecondOfDay(int secondOfDay){
+        if(secondOfDay < 0 || secondOfDay >= SECONDS_PER_DAY){
+            throw new IllegalArgumentException("Second of the day is out of range");
+        }
+
+        Time time = CACHE[secondOfDay];
+        if(time == null){
+            // A lost race only creates an equal instance, Time being immutable
+            time = new Time(secondOfDay);
+            CACHE[secondOfDay] = time;
+        }
+        return time;
     }
 
     /**
@@ -41,13 +85,19 @@ public class Time {
      * @param second The second that this new time represents
      */
     public Time(int hour, int minute, int second) {
+        checkRanges(hour, minute, second);
+
+        this.secondOfDay = hour * 3600 + minute * 60 + second;
+    }
+
+    private Time(int secondOfDay) {
+        this.secondOfDay = secondOfDay;
+    }
+
+    private static void checkRanges(int hour, int minute, int second) {
         if((hour < 0 || hour > 23) || (minute < 0 || minute > 59) || (second < 0 || second > 59)){
             throw new IllegalArgumentException("Hour, minute or second are out of range");
         }
-
-        this.hour = hour;
-        this.minute = minute;
-        this.second = second;
     }
 
     /**
@@ -55,7 +105,7 @@ public class Time {
      * @return The hour that this time represents
      */
     public int getHour() {
-        return hour;
+        return secondOfDay / 3600;
     }
 
     /**
@@ -63,7 +113,7 @@ public class Time {
      * @return The minute that this time represents
      */
     public int getMinute() {
-        return minute;
+        return (secondOfDay / 60) % 60;
     }
 
     /**
@@ -71,41 +121,90 @@ public class Time {
      * @return The second that this time represents
      */
     public int getSecond() {
-        return second;
+        return secondOfDay % 60;
+    }
+
+    /**
+     *
+     * @return The number of seconds elapsed since midnight at this time (between 0 and 86399)
+     */
+    public int toSecondOfDay() {
+        return secondOfDay;
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other time
+     * @return  True - if this time comes strictly before the other<br>
+     *          False - otherwise
+     */
+    public boolean isBefore(Time other) {
+        return secondOfDay < other.secondOfDay;
+    }
+
+    /**
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other time
+     * @return  True - if this time comes strictly after the other<br>
+     *          False - otherwise
+     */
+    public boolean isAfter(Time other) {
+        return secondOfDay > other.secondOfDay;
+    }
+
+    /**
+     * Raises {@code NullPointerException} if from or to are null.
+     *
+     * @param from The starting time (included)
+     * @param to The ending time (included)
+     * @return  True - if this time is between from and to<br>
+     *          False - otherwise
+     */
+    public boolean isBetween(Time from, Time to) {
+        return isBetween(secondOfDay, from.secondOfDay, to.secondOfDay);
+    }
+
+    /**
+     *
+     * @param secondOfDay The second of the day to test
+     * @param from The starting second of the day (included)
+     * @param to The ending second of the day (included)
+     * @return  True - if secondOfDay is between from and to<br>
+     *          False - otherwise
+     */
+    public static boolean isBetween(int secondOfDay, int from, int to) {
+        return secondOfDay >= from && secondOfDay <= to;
     }
 
     /**
      * Compare this time and another one returning a TimeComparisonResult value indicating<br>
      * if the two are equals, if the other is after this and/or vice versa.<br>
-     * Raises {@code UnsupportedOperationException} if the equals() method has recognized the twos as "not equal"<br>
-     * but they are symbolically the same time (as hour, minute, second).
+     * Raises {@code NullPointerException} if other is null.
      *
      * @param other The other time object to be compared with this
      * @return A TimeComparisonResult which indicates if the two are equals, if the other is after this and vice versa
      */
     public TimeComparisonResult compare(Time other){
-        if(this.equals(other))
+        if(other.secondOfDay > this.secondOfDay)
+            return TimeComparisonResult.AFTER;
+        else if(other.secondOfDay < this.secondOfDay)
+            return TimeComparisonResult.BEFORE;
+        else
             return TimeComparisonResult.EQUALS;
-        else{
-            if(other.getHour() > this.getHour())
-                return TimeComparisonResult.AFTER;
-            else if(other.getHour() < this.getHour())
-                return TimeComparisonResult.BEFORE;
-            else{
-                if(other.getMinute() > this.getMinute())
-                    return TimeComparisonResult.AFTER;
-                else if(other.getMinute() < this.getMinute())
-                    return TimeComparisonResult.BEFORE;
-                else{
-                    if(other.getSecond() > this.getSecond())
-                        return TimeComparisonResult.AFTER;
-                    else if(other.getSecond() < this.getSecond())
-                        return TimeComparisonResult.BEFORE;
-                    else
-                        throw new UnsupportedOperationException("The two times are equal but the equals() method didn't work");
-                }
-            }
-        }
+    }
+
+    /**
+     * Orders times from midnight onwards.<br>
+     * Raises {@code NullPointerException} if other is null.
+     *
+     * @param other The other time object to be compared with this
+     * @return A negative number, zero or a positive number if this time is before, equal or after the other
+     */
+    @Override
+    public int compareTo(Time other) {
+        return Integer.compare(secondOfDay, other.secondOfDay);
     }
 
     /**
@@ -122,9 +221,11 @@ public class Time {
         if (this == o) return true;
         if (o == null || this.getClass() != o.getClass()) return false;
         Time otherTime = (Time) o;
-        return  this.getHour() == otherTime.getHour() &&
-                this.getMinute() == otherTime.getMinute() &&
-                this.getSecond() == otherTime.getSecond();
+        return this.secondOfDay == otherTime.secondOfDay;
     }
-}
 
+    @Override
+    public int hashCode() {
+        return secondOfDay;
+    }
+}